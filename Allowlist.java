@@ -0,0 +1,157 @@
+//====================================================================================================================
+// Sparkkrye
+// Allowlist
+// Legitimate words that contain a blocked stem ("computadora", "scunthorpe"): a filter match lying entirely inside
+// one of them is not a hit.
+// Format (allowlist.txt, UTF-8):
+//   # comment
+//   computadora                 one word or phrase per line, case-insensitive
+// Note:
+// All words go into one Aho-Corasick automaton, so a message is scanned once however many exceptions exist and no
+// filter carries negative lookarounds. The generator writes the words once, as the "exceptions:" section after the
+// filters; a plugin reads them with of() and asks coverage(message).covers(start, end) for each match it finds.
+// Self-contained like FilterTable. Words match literally: an allowed word spelled with separators or variants
+// does not suppress anything.
+//======================================================================================================================
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+public final class Allowlist {
+    static final String FILE = "allowlist.txt";
+    public static final Allowlist EMPTY = of(List.of());
+
+    private final List<String> words;
+    private final Map<Long, Integer> edges = new HashMap<>();
+    private final int[] fail;
+    // Length of the longest allowed word ending at this node (directly or through its failure links), 0 if none.
+    private final int[] longest;
+    private final String fingerprint;
+
+    private Allowlist(List<String> words) {
+        this.words = Collections.unmodifiableList(words);
+        List<Integer> depth = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        depth.add(0);
+        terminal.add(0);
+        for (String word : words) {
+            int node = 0;
+            for (int i = 0; i < word.length(); i++) {
+                long key = edgeKey(node, word.charAt(i));
+                Integer next = edges.get(key);
+                if (next == null) {
+                    next = depth.size();
+                    depth.add(i + 1);
+                    terminal.add(0);
+                    edges.put(key, next);
+                }
+                node = next;
+            }
+            terminal.set(node, word.length());
+        }
+
+        int nodes = depth.size();
+        fail = new int[nodes];
+        longest = new int[nodes];
+        List<List<long[]>> children = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) children.add(new ArrayList<>());
+        for (Map.Entry<Long, Integer> e : edges.entrySet()) {
+            children.get((int) (e.getKey() >>> 16)).add(new long[]{e.getKey() & 0xffff, e.getValue()});
+        }
+        // Breadth-first, so a node's failure target is finished before the node itself.
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            longest[node] = Math.max(terminal.get(node), longest[fail[node]]);
+            for (long[] child : children.get(node)) {
+                char c = (char) child[0];
+                int next = (int) child[1];
+                if (node != 0) {
+                    int f = fail[node];
+                    while (f != 0 && !edges.containsKey(edgeKey(f, c))) f = fail[f];
+                    Integer target = edges.get(edgeKey(f, c));
+                    fail[next] = target != null && target != next ? target : 0;
+                }
+                queue.add(next);
+            }
+        }
+        fingerprint = Integer.toHexString(String.join("\n", words).hashCode()) + "/" + words.size();
+    }
+
+    // Words are trimmed, lower-cased and their inner whitespace collapsed; blanks, '#' comments and repeats are skipped.
+    public static Allowlist of(Iterable<String> lines) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String line : lines) {
+            String word = line.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+            if (!word.isEmpty() && !word.startsWith("#")) words.add(word);
+        }
+        return new Allowlist(new ArrayList<>(words));
+    }
+
+    public static Allowlist load(Path path) throws IOException {
+        return of(Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    // allowlist.txt next to words.txt when it exists, otherwise no exceptions.
+    static Allowlist loadDefault() throws IOException {
+        Path path = Path.of(FILE);
+        return Files.exists(path) ? load(path) : EMPTY;
+    }
+
+    public List<String> words() {
+        return words;
+    }
+
+    public boolean isEmpty() {
+        return words.isEmpty();
+    }
+
+    // Part of the save hash: a changed allowlist changes the written exceptions.
+    String fingerprint() {
+        return fingerprint;
+    }
+
+    public static final class Coverage {
+        private final int[] reach;
+
+        private Coverage(int[] reach) {
+            this.reach = reach;
+        }
+
+        // True when one allowed word occurrence spans the whole of [start, end).
+        public boolean covers(int start, int end) {
+            return start < reach.length && reach[start] >= end;
+        }
+    }
+
+    // One pass over the message; reach[i] is the furthest end of an allowed word starting at or before i.
+    public Coverage coverage(CharSequence message) {
+        int[] reach = new int[message.length()];
+        int node = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = Character.toLowerCase(message.charAt(i));
+            Integer next;
+            while ((next = edges.get(edgeKey(node, c))) == null && node != 0) node = fail[node];
+            node = next == null ? 0 : next;
+            int length = longest[node];
+            if (length > 0) reach[i + 1 - length] = Math.max(reach[i + 1 - length], i + 1);
+        }
+        for (int i = 1; i < reach.length; i++) reach[i] = Math.max(reach[i], reach[i - 1]);
+        return new Coverage(reach);
+    }
+
+    private static long edgeKey(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+}
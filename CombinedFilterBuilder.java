@@ -0,0 +1,188 @@
+//====================================================================================================================
+// Sparkkrye
+// CombinedFilterBuilder
+// Merges many words into a few alternation patterns that share common prefixes (prefix trie over Confusables groups).
+// Note:
+// Each branch keeps the exact shape of generateNormalRegex/generateStrongRegex (same boundaries, same SEP handling),
+// so a message without line breaks is blocked by the combined pattern exactly when it is blocked by one of the
+// single-word patterns. The per-word "Guardian" lookahead is not emitted: the first-letter branch of the trie already
+// fails fast. Its '.' stops at a line break, so across one the single-word patterns can miss a word the combined
+// pattern still blocks (like FilterMatcher and SubsumptionAnalyzer, which ignore the guardian as well).
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+final class CombinedFilterBuilder {
+
+    private static final class Node {
+        final String group;     // "[class]" or "(?:[class]|ph)"
+        final boolean wordGap;  // a space of a phrase comes before this letter
+        final Map<String, Node> children = new LinkedHashMap<>();
+        boolean terminal;
+
+        Node(String group, boolean wordGap) {
+            this.group = group;
+            this.wordGap = wordGap;
+        }
+    }
+
+    private CombinedFilterBuilder() {}
+
+    static List<String> buildNormal(List<String> words, int patternCount) {
+        List<String> patterns = new ArrayList<>();
+        for (List<String> chunk : split(words, patternCount)) {
+            patterns.add(normalPattern(chunk));
+        }
+        return patterns;
+    }
+
+    static List<String> buildStrong(List<String> words, int patternCount) {
+        List<String> patterns = new ArrayList<>();
+        for (List<String> chunk : split(words, patternCount)) {
+            patterns.add(strongPattern(chunk));
+        }
+        return patterns;
+    }
+
+    static String normalPattern(List<String> words) {
+        return normalPattern(words, Confusables.BUILT_IN);
+    }
+
+    static String normalPattern(List<String> words, Confusables confusables) {
+        return normalPattern(words, confusables, Separators.UNLIMITED);
+    }
+
+    static String normalPattern(List<String> words, Confusables confusables, Separators separators) {
+        return FilterGenerator.NORMAL_PREFIX_REGEX + separators.regex(false)
+                + renderChildren(buildTrie(words, confusables), false, separators) + separators.normalSuffix();
+    }
+
+    static String strongPattern(List<String> words) {
+        return strongPattern(words, Confusables.BUILT_IN);
+    }
+
+    static String strongPattern(List<String> words, Confusables confusables) {
+        return strongPattern(words, confusables, Separators.UNLIMITED);
+    }
+
+    static String strongPattern(List<String> words, Confusables confusables, Separators separators) {
+        return FilterGenerator.STRONG_PREFIX_REGEX + FilterGenerator.STRONG_BODY_PREFIX
+                + renderChildren(buildTrie(words, confusables), true, separators) + FilterGenerator.STRONG_BODY_SUFFIX
+                + separators.regex(false) + "?";
+    }
+
+    // Two groups with the same members (e.g. 'b' -> "bv" and 'v' -> "vb") share a trie edge.
+    private static String groupKey(char c, Confusables confusables) {
+        String group = confusables.classFor(c);
+        String key = group.startsWith("\\Q") ? group : group.chars().distinct().sorted()
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+        for (String seq : confusables.sequencesOf(c)) key += '|' + seq;
+        return key;
+    }
+
+    private static String wordKey(String word, Confusables confusables) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : word.toCharArray()) {
+            if (c == Separators.WORD_GAP) {
+                sb.append('\u0001');
+                continue;
+            }
+            sb.append(groupKey(c, confusables)).append('\u0000');
+        }
+        return sb.toString();
+    }
+
+    static List<List<String>> split(List<String> words, int patternCount) {
+        return split(words, patternCount, Confusables.BUILT_IN);
+    }
+
+    // Sorting by group sequence keeps words with shared prefixes in the same chunk.
+    static List<List<String>> split(List<String> words, int patternCount, Confusables confusables) {
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for (String w : words) {
+            if (!w.isEmpty()) sorted.putIfAbsent(wordKey(w, confusables), w);
+        }
+        List<String> ordered = new ArrayList<>(sorted.values());
+        List<List<String>> chunks = new ArrayList<>();
+        if (ordered.isEmpty()) return chunks;
+
+        int count = Math.max(1, Math.min(patternCount, ordered.size()));
+        int size = (ordered.size() + count - 1) / count;
+        for (int i = 0; i < ordered.size(); i += size) {
+            chunks.add(ordered.subList(i, Math.min(ordered.size(), i + size)));
+        }
+        return chunks;
+    }
+
+    private static Node buildTrie(List<String> words, Confusables confusables) {
+        Node root = new Node("", false);
+        for (String w : words) {
+            Node node = root;
+            boolean gap = false;
+            for (char c : w.toCharArray()) {
+                if (c == Separators.WORD_GAP) {
+                    gap = true;
+                    continue;
+                }
+                StringBuilder item = new StringBuilder();
+                confusables.appendItem(item, c);
+                boolean wordGap = gap;
+                node = node.children.computeIfAbsent((gap ? " " : "") + groupKey(c, confusables),
+                        k -> new Node(item.toString(), wordGap));
+                gap = false;
+            }
+            node.terminal = true;
+        }
+        return root;
+    }
+
+    private static String renderChildren(Node node, boolean strong, Separators separators) {
+        if (node.children.size() == 1) {
+            return render(node.children.values().iterator().next(), strong, separators);
+        }
+        StringBuilder sb = new StringBuilder("(?:");
+        boolean first = true;
+        for (Node child : node.children.values()) {
+            if (!first) sb.append('|');
+            sb.append(render(child, strong, separators));
+            first = false;
+        }
+        return sb.append(')').toString();
+    }
+
+    // The separator goes in front of the alternation, unless a word gap and a letter gap render differently.
+    private static String renderRest(Node node, boolean strong, Separators separators) {
+        boolean gaps = false;
+        boolean letters = false;
+        for (Node child : node.children.values()) {
+            if (child.wordGap) gaps = true; else letters = true;
+        }
+        if (!gaps || !letters || separators.letters == separators.words) {
+            return separators.regex(gaps && !letters) + renderChildren(node, strong, separators);
+        }
+        StringBuilder sb = new StringBuilder("(?:");
+        boolean first = true;
+        for (Node child : node.children.values()) {
+            if (!first) sb.append('|');
+            sb.append(separators.regex(child.wordGap)).append(render(child, strong, separators));
+            first = false;
+        }
+        return sb.append(')').toString();
+    }
+
+    private static String render(Node node, boolean strong, Separators separators) {
+        String letter = node.group + "+";
+        String sep = separators.regex(false);
+        if (node.children.isEmpty()) {
+            return strong ? letter : letter + sep + "?";
+        }
+        String rest = renderRest(node, strong, separators);
+        if (!node.terminal) {
+            return letter + rest;
+        }
+        return strong ? letter + "(?:" + rest + ")?" : letter + "(?:" + rest + "|" + sep + "?)";
+    }
+}
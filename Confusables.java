@@ -0,0 +1,246 @@
+//====================================================================================================================
+// Sparkkrye
+// Confusables
+// The variant table (which characters stand in for each letter), compiled into flat char-indexed arrays.
+// Format (confusables.txt, UTF-8):
+//   # comment
+//   a = á Á ä Ä @ а α ａ        one token per variant; backslash-u escapes (four hex digits) work too
+//   f = ph                      a token longer than one character is a sequence ("ph" reads as 'f')
+// Note:
+// Lookups never box: slotOf maps a canonical letter to its slot, reverse maps any character to the set of slots
+// that accept it (one array read), so the regex generator and FilterMatcher read the same table. Without a
+// confusables.txt the built-in table is used, and it produces exactly the classes the generator always had.
+//======================================================================================================================
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public final class Confusables {
+    static final String FILE = "confusables.txt";
+
+    private static final String[] BUILT_IN_LINES = {
+        "a = a á Á ä Ä", "b = b v", "c = c k ç Ç", "d = d", "e = e é É ë Ë 3", "f = f", "g = g 9", "h = h",
+        "i = i 1 ! í l |", "j = j J", "k = k K", "l = l | !", "m = m", "n = n ñ Ñ", "o = o 0 ó Ó", "p = p",
+        "q = q", "r = r", "s = s $ 5", "t = t 7", "u = u ú", "v = v b", "w = w", "x = x ×", "y = y", "z = z 2"
+    };
+
+    private static final String CLASS_ESCAPES = "\\^-[]&";
+    private static final String[] NO_SEQUENCES = new String[0];
+
+    static final Confusables BUILT_IN = parse(List.of(BUILT_IN_LINES), "built-in");
+
+    private final String name;
+    private final char[] slotOf = new char[65536];
+    private final char[] canonicals;
+    private final String[] members;
+    private final String[] classes;
+    private final String[][] sequences;
+    private final char[] reverse = new char[65536];
+    private final BitSet[] reverseSets;
+    private final char[] representatives;
+    private final String fingerprint;
+
+    private Confusables(String name, Map<Character, List<String>> table) {
+        this.name = name;
+        int slots = table.size();
+        canonicals = new char[slots];
+        members = new String[slots];
+        classes = new String[slots];
+        sequences = new String[slots][];
+
+        int slot = 0;
+        for (Map.Entry<Character, List<String>> e : table.entrySet()) {
+            char canonical = e.getKey();
+            StringBuilder chars = new StringBuilder();
+            StringBuilder cls = new StringBuilder();
+            List<String> seqs = new ArrayList<>();
+            for (String token : e.getValue()) {
+                if (token.length() > 1) {
+                    if (!seqs.contains(token)) seqs.add(token);
+                    continue;
+                }
+                char c = token.charAt(0);
+                if (chars.indexOf(token) >= 0) continue;
+                chars.append(c);
+                if (CLASS_ESCAPES.indexOf(c) >= 0) cls.append('\\');
+                cls.append(c);
+            }
+            canonicals[slot] = canonical;
+            members[slot] = chars.toString();
+            classes[slot] = cls.toString();
+            sequences[slot] = seqs.toArray(NO_SEQUENCES);
+            slotOf[canonical] = (char) (slot + 1);
+            slot++;
+        }
+
+        // Reverse map: character -> id of the distinct set of slots accepting it, with (?i)'s ASCII-only folding.
+        BitSet[] accepting = new BitSet[65536];
+        for (int s = 0; s < slots; s++) {
+            for (char c : members[s].toCharArray()) {
+                for (char folded : folds(c)) {
+                    if (accepting[folded] == null) accepting[folded] = new BitSet();
+                    accepting[folded].set(s);
+                }
+            }
+        }
+        Map<BitSet, Character> ids = new LinkedHashMap<>();
+        ids.put(new BitSet(), (char) 0);
+        for (int c = 0; c < 65536; c++) {
+            if (accepting[c] == null) continue;
+            Character id = ids.get(accepting[c]);
+            if (id == null) {
+                id = (char) ids.size();
+                ids.put(accepting[c], id);
+            }
+            reverse[c] = id;
+        }
+        reverseSets = ids.keySet().toArray(new BitSet[0]);
+
+        // Letters that accept exactly the same text ('b' = "bv", 'v' = "vb") share the first one as representative.
+        representatives = new char[slots];
+        Map<String, Character> byAcceptance = new LinkedHashMap<>();
+        for (int s = 0; s < slots; s++) {
+            StringBuilder key = new StringBuilder();
+            members[s].chars().map(Confusables::fold).distinct().sorted().forEach(c -> key.append((char) c));
+            for (String seq : sequences[s]) {
+                key.append('|');
+                seq.chars().map(Confusables::fold).forEach(c -> key.append((char) c));
+            }
+            Character first = byAcceptance.putIfAbsent(key.toString(), canonicals[s]);
+            representatives[s] = first != null ? first : canonicals[s];
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int s = 0; s < slots; s++) {
+            sb.append(canonicals[s]).append('=').append(members[s]);
+            for (String seq : sequences[s]) sb.append(' ').append(seq);
+            sb.append('\n');
+        }
+        fingerprint = Integer.toHexString(sb.toString().hashCode()) + "/" + sb.length();
+    }
+
+    static Confusables load(Path path) throws IOException {
+        try {
+            return parse(Files.readAllLines(path, StandardCharsets.UTF_8), path.toString());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    // confusables.txt next to words.txt when it exists, otherwise the built-in table.
+    static Confusables loadDefault() throws IOException {
+        Path path = Path.of(FILE);
+        return Files.exists(path) ? load(path) : BUILT_IN;
+    }
+
+    static Confusables parse(List<String> lines, String name) {
+        Map<Character, List<String>> table = new LinkedHashMap<>();
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int eq = line.indexOf('=');
+            String key = eq < 0 ? "" : unescape(line.substring(0, eq).trim());
+            if (key.length() != 1) {
+                throw new IllegalArgumentException(name + ":" + (n + 1) + ": expected '<letter> = <variants>'");
+            }
+            char canonical = Character.toLowerCase(key.charAt(0));
+            List<String> tokens = table.computeIfAbsent(canonical, k -> new ArrayList<>());
+            if (tokens.isEmpty()) tokens.add(Character.toString(canonical));
+            for (String token : line.substring(eq + 1).trim().split("\\s+")) {
+                if (!token.isEmpty()) tokens.add(unescape(token));
+            }
+        }
+        return new Confusables(name, table);
+    }
+
+    String name() {
+        return name;
+    }
+
+    // Changes whenever the table would generate different patterns; part of cache keys and save hashes.
+    String fingerprint() {
+        return fingerprint;
+    }
+
+    // Same representative means same accepted text, so two words can be compared letter by letter.
+    char representative(char c) {
+        int slot = slotOf[c];
+        return slot != 0 ? representatives[slot - 1] : c;
+    }
+
+    // Bracket content for '[...]': the configured class, or the character itself quoted.
+    String classFor(char c) {
+        int slot = slotOf[c];
+        return slot != 0 ? classes[slot - 1] : Pattern.quote(Character.toString(c));
+    }
+
+    // The characters a letter accepts, unescaped (the letter itself when it is not configured).
+    String membersOf(char c) {
+        int slot = slotOf[c];
+        return slot != 0 ? members[slot - 1] : Character.toString(c);
+    }
+
+    String[] sequencesOf(char c) {
+        int slot = slotOf[c];
+        return slot != 0 ? sequences[slot - 1] : NO_SEQUENCES;
+    }
+
+    // Does the class of canonical letter 'letter' accept 'c'? One array read for configured letters.
+    boolean accepts(char letter, char c) {
+        int slot = slotOf[letter];
+        if (slot == 0) return FilterMatcher.groupAccepts(Character.toString(letter), c);
+        return reverseSets[reverse[c]].get(slot - 1);
+    }
+
+    // Regex alternative for one letter of a word: "[class]" or "(?:[class]|ph)" when sequences exist.
+    void appendItem(StringBuilder sb, char c) {
+        String[] seqs = sequencesOf(c);
+        if (seqs.length == 0) {
+            sb.append('[').append(classFor(c)).append(']');
+            return;
+        }
+        sb.append("(?:[").append(classFor(c)).append(']');
+        for (String seq : seqs) sb.append('|').append(literal(seq));
+        sb.append(')');
+    }
+
+    static String literal(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c < 128 && !Character.isLetterOrDigit(c)) sb.append('\\');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // (?i) without UNICODE_CASE: only US-ASCII letters fold.
+    private static int fold(int c) {
+        return c < 128 ? Character.toLowerCase(c) : c;
+    }
+
+    private static char[] folds(char c) {
+        if (c < 128 && Character.isLetter(c)) return new char[]{Character.toLowerCase(c), Character.toUpperCase(c)};
+        return new char[]{c};
+    }
+
+    private static String unescape(String token) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '\\' && i + 5 < token.length() && token.charAt(i + 1) == 'u') {
+                sb.append((char) Integer.parseInt(token.substring(i + 2, i + 6), 16));
+                i += 5;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
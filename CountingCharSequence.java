@@ -0,0 +1,59 @@
+//====================================================================================================================
+// Sparkkrye
+// CountingCharSequence
+// Wraps a message and counts every character the regex engine reads: a deterministic proxy for backtracking steps.
+// Note:
+// Once the limit is reached the next read throws, so a catastrophic pattern is stopped instead of stalling.
+//======================================================================================================================
+final class CountingCharSequence implements CharSequence {
+
+    static final class LimitExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final CharSequence text;
+    private final long limit;
+    private long reads;
+
+    CountingCharSequence(CharSequence text, long limit) {
+        this.text = text;
+        this.limit = limit;
+    }
+
+    CountingCharSequence(CharSequence text) {
+        this(text, Long.MAX_VALUE);
+    }
+
+    long reads() {
+        return reads;
+    }
+
+    void reset() {
+        reads = 0;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++reads > limit) throw new LimitExceededException();
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
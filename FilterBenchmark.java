@@ -0,0 +1,304 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterBenchmark
+// Measures how fast the generated filters decide "blocked or not" over synthetic chat traffic.
+// Usage:
+// java FilterBenchmark [-w words.txt] [--words 50,200,800] [--lengths 32,256] [--modes normal,strong]
+//                      [--guardian on,off] [--corpora clean,obfuscated,rainbow,nearmiss]
+//                      [--engines regex,combined,matcher,prescreen] [--time 1000] [--csv]
+// Note:
+// Every engine answers the same question per message (stop at the first blocking filter), so the numbers are
+// directly comparable. Corpora are generated from a fixed seed, so runs on different machines see the same text.
+//======================================================================================================================
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class FilterBenchmark {
+    private static final long SEED = 0x5EC7L;
+    private static final int MESSAGES_PER_CORPUS = 200;
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static final String[] CHAT_WORDS = {
+        "hola", "que", "tal", "como", "estas", "bien", "gracias", "vamos", "al", "spawn", "alguien", "tiene", "hierro",
+        "hello", "anyone", "want", "to", "trade", "diamonds", "for", "my", "house", "is", "near", "the", "village",
+        "lol", "gg", "xd", "ok", "nice", "build", "where", "are", "you", "server", "lag", "today", "buenas", "noches"
+    };
+    private static final String[] SEPARATORS = {".", " ", "-", "_", "*", "§c", "§l", "  ", ".."};
+    private static final String COLOR_CODES = "0123456789abcdef";
+    private static final String NEAR_MISS_LETTERS = "qxzwj";
+
+    interface Engine {
+        boolean blocked(String message);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String wordsFile = null;
+        int[] wordCounts = {50, 200, 800};
+        int[] lengths = {32, 256};
+        List<String> modes = List.of("normal", "strong");
+        List<String> guardians = List.of("on", "off");
+        List<String> corpora = List.of("clean", "obfuscated", "rainbow", "nearmiss");
+        List<String> engines = List.of("regex", "combined", "matcher");
+        long timeMillis = 1000;
+        boolean csv = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-w": wordsFile = args[++i]; break;
+                case "--words": wordCounts = parseInts(args[++i]); break;
+                case "--lengths": lengths = parseInts(args[++i]); break;
+                case "--modes": modes = Arrays.asList(args[++i].split(",")); break;
+                case "--guardian": guardians = Arrays.asList(args[++i].split(",")); break;
+                case "--corpora": corpora = Arrays.asList(args[++i].split(",")); break;
+                case "--engines": engines = Arrays.asList(args[++i].split(",")); break;
+                case "--time": timeMillis = Long.parseLong(args[++i]); break;
+                case "--csv": csv = true; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                    return;
+            }
+        }
+
+        List<String> wordPool = wordsFile != null ? loadWords(wordsFile) : syntheticWords(Arrays.stream(wordCounts).max().orElse(0));
+        if (csv) {
+            System.out.println("engine,mode,guardian,words,length,corpus,messages_per_sec,ns_per_message,blocked");
+        } else {
+            System.out.printf("%-9s %-7s %-8s %6s %6s %-11s %14s %12s %8s%n",
+                    "engine", "mode", "guardian", "words", "length", "corpus", "msgs/sec", "ns/msg", "blocked");
+        }
+
+        for (String mode : modes) {
+            boolean strong = mode.equals("strong");
+            for (int wordCount : wordCounts) {
+                List<String> words = wordPool.subList(0, Math.min(wordCount, wordPool.size()));
+                for (int length : lengths) {
+                    for (String corpus : corpora) {
+                        String[] messages = corpus(corpus, words, length, strong);
+                        for (String engineName : engines) {
+                            // The guardian only exists in the per-word patterns.
+                            List<String> guardianRuns = engineName.equals("regex") || engineName.equals("prescreen") ? guardians : List.of("-");
+                            for (String guardian : guardianRuns) {
+                                Engine engine = engine(engineName, words, strong, !guardian.equals("off"));
+                                report(csv, engineName, mode, guardian, words.size(), length, corpus,
+                                        run(engine, messages, timeMillis), countBlocked(engine, messages), messages.length);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static Engine engine(String name, List<String> words, boolean strong, boolean guardian) {
+        switch (name) {
+            case "regex": {
+                List<Pattern> patterns = new ArrayList<>();
+                for (String w : words) {
+                    String regex = strong
+                            ? FilterGenerator.generateStrongRegex(w, guardian) + FilterGenerator.STRONG_FINAL_REGEX_SEP
+                            : FilterGenerator.generateNormalRegex(w, guardian);
+                    patterns.add(Pattern.compile(regex));
+                }
+                return anyFinds(patterns);
+            }
+            case "combined": {
+                List<Pattern> patterns = new ArrayList<>();
+                for (String regex : strong ? CombinedFilterBuilder.buildStrong(words, 1) : CombinedFilterBuilder.buildNormal(words, 1)) {
+                    patterns.add(Pattern.compile(regex));
+                }
+                return anyFinds(patterns);
+            }
+            case "prescreen": {
+                // The per-word patterns, but only the candidates of the pre-screen run.
+                List<Pattern> patterns = new ArrayList<>();
+                PreScreen.Builder builder = new PreScreen.Builder(Confusables.BUILT_IN);
+                for (String w : words) {
+                    String regex = strong
+                            ? FilterGenerator.generateStrongRegex(w, guardian) + FilterGenerator.STRONG_FINAL_REGEX_SEP
+                            : FilterGenerator.generateNormalRegex(w, guardian);
+                    patterns.add(Pattern.compile(regex));
+                    builder.add(new FilterGenerator.GeneratedFilter(w, regex, strong, List.of(w)));
+                }
+                Pattern[] array = patterns.toArray(new Pattern[0]);
+                PreScreen preScreen = builder.build();
+                return message -> {
+                    BitSet candidates = preScreen.candidates(message);
+                    for (int f = candidates.nextSetBit(0); f >= 0; f = candidates.nextSetBit(f + 1)) {
+                        if (array[f].matcher(message).find()) return true;
+                    }
+                    return false;
+                };
+            }
+            case "matcher": {
+                List<String> lines = new ArrayList<>();
+                for (String w : words) lines.add(strong ? "!" + w : w);
+                return FilterMatcher.compile(lines, false)::matches;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+
+    private static Engine anyFinds(List<Pattern> patterns) {
+        Pattern[] array = patterns.toArray(new Pattern[0]);
+        return message -> {
+            for (Pattern p : array) {
+                if (p.matcher(message).find()) return true;
+            }
+            return false;
+        };
+    }
+
+    // Warmup and measurement are both bounded by time, so pathological configurations still finish.
+    static double run(Engine engine, String[] messages, long timeMillis) {
+        int sink = 0;
+        long warmupDeadline = System.nanoTime() + timeMillis * 500_000L;
+        for (int r = 0; r < WARMUP_ROUNDS && System.nanoTime() < warmupDeadline; r++) {
+            for (String m : messages) if (engine.blocked(m)) sink++;
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeMillis * 1_000_000L;
+        long processed = 0;
+        for (int i = 0; processed == 0 || System.nanoTime() < deadline; i = (i + 1) % messages.length) {
+            if (engine.blocked(messages[i])) sink++;
+            processed++;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == -1) System.out.println();
+        return processed * 1e9 / elapsed;
+    }
+
+    private static int countBlocked(Engine engine, String[] messages) {
+        int blocked = 0;
+        for (String m : messages) if (engine.blocked(m)) blocked++;
+        return blocked;
+    }
+
+    private static void report(boolean csv, String engine, String mode, String guardian, int words, int length,
+                               String corpus, double perSecond, int blocked, int total) {
+        if (csv) {
+            System.out.printf(Locale.ROOT, "%s,%s,%s,%d,%d,%s,%.0f,%.0f,%d%n",
+                    engine, mode, guardian, words, length, corpus, perSecond, 1e9 / perSecond, blocked);
+        } else {
+            System.out.printf(Locale.ROOT, "%-9s %-7s %-8s %6d %6d %-11s %14.0f %12.0f %4d/%-3d%n",
+                    engine, mode, guardian, words, length, corpus, perSecond, 1e9 / perSecond, blocked, total);
+        }
+    }
+
+    // ---- Synthetic corpora ----
+
+    static String[] corpus(String kind, List<String> words, int length, boolean strong) {
+        Random random = new Random(SEED ^ kind.hashCode() ^ length);
+        String[] messages = new String[MESSAGES_PER_CORPUS];
+        for (int i = 0; i < messages.length; i++) {
+            switch (kind) {
+                case "clean": messages[i] = cleanText(random, length); break;
+                case "obfuscated": messages[i] = withInsert(random, length, obfuscate(random, pick(random, words))); break;
+                case "rainbow": messages[i] = rainbow(random, i % 2 == 0
+                        ? cleanText(random, length)
+                        : withInsert(random, length, pick(random, words))); break;
+                case "nearmiss": messages[i] = withInsert(random, length, nearMiss(random, pick(random, words), strong)); break;
+                default: throw new IllegalArgumentException("Unknown corpus: " + kind);
+            }
+        }
+        return messages;
+    }
+
+    private static String cleanText(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(CHAT_WORDS[random.nextInt(CHAT_WORDS.length)]);
+        }
+        return sb.substring(0, length);
+    }
+
+    private static String withInsert(Random random, int length, String insert) {
+        String text = cleanText(random, Math.max(0, length - insert.length() - 2));
+        int at = text.isEmpty() ? 0 : random.nextInt(text.length() + 1);
+        while (at > 0 && at < text.length() && text.charAt(at - 1) != ' ') at--;
+        return text.substring(0, at) + insert + " " + text.substring(at);
+    }
+
+    // Leetspeak from the built-in Confusables, repeated letters and separators/color codes between letters.
+    private static String obfuscate(Random random, String word) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : word.toCharArray()) {
+            String group = Confusables.BUILT_IN.membersOf(c);
+            char letter = random.nextInt(3) == 0 ? group.charAt(random.nextInt(group.length())) : c;
+            sb.append(letter);
+            if (random.nextInt(4) == 0) sb.append(letter);
+            if (random.nextInt(2) == 0) sb.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String rainbow(Random random, String text) {
+        StringBuilder sb = new StringBuilder();
+        int color = random.nextInt(COLOR_CODES.length());
+        for (char c : text.toCharArray()) {
+            sb.append('§').append(COLOR_CODES.charAt(color++ % COLOR_CODES.length())).append(c);
+        }
+        return sb.toString();
+    }
+
+    // Same first and last letter (so the guardian passes), but one middle letter changed to one its confusables
+    // do not accept. Normal words may also be glued into a longer word; Strong patterns have no boundaries, so
+    // for them that would be a hit, not a near miss.
+    private static String nearMiss(Random random, String word, boolean strong) {
+        if (!strong && random.nextBoolean()) return "es" + word + "ito";
+        char[] chars = word.toCharArray();
+        int i = chars.length > 2 ? 1 + random.nextInt(chars.length - 2) : chars.length - 1;
+        String accepted = Confusables.BUILT_IN.membersOf(chars[i]);
+        for (char c : NEAR_MISS_LETTERS.toCharArray()) {
+            if (c != chars[i] && accepted.indexOf(c) < 0) {
+                chars[i] = c;
+                break;
+            }
+        }
+        return new String(chars);
+    }
+
+    private static String pick(Random random, List<String> words) {
+        return words.get(random.nextInt(words.size()));
+    }
+
+    // ---- Word lists ----
+
+    private static List<String> loadWords(String filename) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8))) {
+            FilterGenerator.forEachWord(() -> reader.lines().iterator(), false, (clean, isStrong) -> words.add(clean));
+        }
+        return words;
+    }
+
+    private static List<String> syntheticWords(int count) {
+        Random random = new Random(SEED);
+        String consonants = "bcdfgjklmnprstvz";
+        String vowels = "aeiou";
+        List<String> words = new ArrayList<>();
+        while (words.size() < count) {
+            StringBuilder sb = new StringBuilder();
+            int syllables = 2 + random.nextInt(2);
+            for (int s = 0; s < syllables; s++) {
+                sb.append(consonants.charAt(random.nextInt(consonants.length())));
+                sb.append(vowels.charAt(random.nextInt(vowels.length())));
+            }
+            if (!words.contains(sb.toString())) words.add(sb.toString());
+        }
+        return words;
+    }
+
+    private static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+}
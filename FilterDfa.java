@@ -0,0 +1,224 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterDfa
+// Compiles a word list into minimized DFAs and writes them as one binary table (FilteredWords.dfa) for FilterTable.
+// Note:
+// The states come from FilterMatcher.determinize, so the table blocks exactly the messages FilterMatcher blocks
+// (the generated regexes, apart from the "Guardian" lookahead across line breaks). Minimization is Moore's
+// partition refinement; the start partition is {blocked}, {blocked if the message ends here}, {everything else}.
+// One DFA for a whole list does not scale: Strong words start anywhere and separators may sit between any two
+// letters, so the states multiply with every word (ten words are already ~17k states). The list is split in halves
+// until every part fits in maxStates; a message is blocked when any part blocks it, so matching stays linear in
+// (message length x parts) with no backtracking. Separators.colorCodes is not supported: a color code is several
+// characters, while the table reads one separator per character.
+// File layout (big-endian):
+//   int magic 'SFDT', int version (FilterTable.VERSION, 2), int parts, int symbols
+//   int ranges, then ranges x (char first, char symbol): the BMP split into runs that share a symbol
+//   per part: int symbols, int states, int start, char[symbols of the file] part symbol of each file symbol,
+//             byte[states] flags (1 = blocked at end of message),
+//             byte width (2 or 4), then states x symbols transitions of that width, row by row
+//======================================================================================================================
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class FilterDfa {
+    static final int BLOCKED = FilterTable.BLOCKED;
+    static final int DEFAULT_MAX_STATES = 20_000;
+
+    static final class Part {
+        final char[] symbolOf;
+        final int symbolCount;
+        final int[] next;
+        final boolean[] pending;
+        final int start;
+
+        Part(char[] symbolOf, int symbolCount, int[] next, boolean[] pending, int start) {
+            this.symbolOf = symbolOf;
+            this.symbolCount = symbolCount;
+            this.next = next;
+            this.pending = pending;
+            this.start = start;
+        }
+
+        int stateCount() {
+            return pending.length;
+        }
+
+        // Same decision as FilterMatcher.matches, straight from the arrays; FilterTable does this on the mapped file.
+        boolean matches(CharSequence message) {
+            int state = start;
+            for (int i = 0; i < message.length(); ) {
+                int cp = Character.codePointAt(message, i);
+                i += Character.charCount(cp);
+                int symbol = cp < 65536 ? symbolOf[cp] : 0;
+                state = next[state * symbolCount + symbol];
+                if (state == BLOCKED) return true;
+            }
+            return pending[state];
+        }
+    }
+
+    final List<Part> parts;
+
+    private FilterDfa(List<Part> parts) {
+        this.parts = parts;
+    }
+
+    // Entries are words with an optional leading '!', already expanded (gender, endings) by the caller.
+    static FilterDfa compile(List<String> entries, Confusables confusables, Separators separators, int maxStates) {
+        if (separators.colorCodes) throw new IllegalStateException("color-code separators need the regexes");
+        List<Part> parts = new ArrayList<>();
+        compile(entries, confusables, separators, maxStates, parts);
+        return new FilterDfa(parts);
+    }
+
+    private static void compile(List<String> entries, Confusables confusables, Separators separators, int maxStates,
+                                List<Part> parts) {
+        if (entries.isEmpty()) return;
+        try {
+            parts.add(minimize(FilterMatcher.compile(entries, false, confusables, separators).determinize(maxStates)));
+        } catch (IllegalStateException e) {
+            if (entries.size() == 1) throw new IllegalStateException(entries.get(0) + ": " + e.getMessage(), e);
+            int half = entries.size() / 2;
+            compile(entries.subList(0, half), confusables, separators, maxStates, parts);
+            compile(entries.subList(half, entries.size()), confusables, separators, maxStates, parts);
+        }
+    }
+
+    int stateCount() {
+        int states = 0;
+        for (Part part : parts) states += part.stateCount();
+        return states;
+    }
+
+    boolean matches(CharSequence message) {
+        for (Part part : parts) {
+            if (part.matches(message)) return true;
+        }
+        return false;
+    }
+
+    private static Part minimize(FilterMatcher.Dfa dfa) {
+        int states = dfa.next.length;
+        int symbols = dfa.symbolCount;
+        int[] block = new int[states];
+        boolean[] used = new boolean[3];
+        for (int s = 0; s < states; s++) {
+            block[s] = s == BLOCKED ? 0 : dfa.pending[s] ? 1 : 2;
+            used[block[s]] = true;
+        }
+        int blocks = (used[0] ? 1 : 0) + (used[1] ? 1 : 0) + (used[2] ? 1 : 0);
+
+        // Split blocks until every state in a block goes to the same blocks on every symbol.
+        while (true) {
+            Map<Signature, Integer> ids = new HashMap<>();
+            ids.put(new Signature(signature(dfa, block, BLOCKED, symbols)), 0);
+            int[] refined = new int[states];
+            for (int s = 1; s < states; s++) {
+                Signature key = new Signature(signature(dfa, block, s, symbols));
+                Integer id = ids.get(key);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(key, id);
+                }
+                refined[s] = id;
+            }
+            block = refined;
+            if (ids.size() == blocks) break;
+            blocks = ids.size();
+        }
+
+        int[] next = new int[blocks * symbols];
+        boolean[] pending = new boolean[blocks];
+        for (int s = 0; s < states; s++) {
+            pending[block[s]] = dfa.pending[s];
+            for (int c = 0; c < symbols; c++) next[block[s] * symbols + c] = block[dfa.next[s][c]];
+        }
+        return new Part(dfa.symbolOf, symbols, next, pending, block[dfa.start]);
+    }
+
+    // The state's current block first, so states are never merged across blocks.
+    private static int[] signature(FilterMatcher.Dfa dfa, int[] block, int state, int symbols) {
+        int[] sig = new int[symbols + 1];
+        sig[0] = block[state];
+        for (int c = 0; c < symbols; c++) sig[c + 1] = block[dfa.next[state][c]];
+        return sig;
+    }
+
+    void write(Path target) throws IOException {
+        IncrementalSaver.writeBinaryAtomically(target, out -> write(new DataOutputStream(out)));
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        // File symbols: characters that every part maps to the same symbols share one.
+        char[] symbolOf = new char[65536];
+        List<char[]> partSymbols = new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
+        char[] key = new char[parts.size()];
+        for (int c = 0; c < 65536; c++) {
+            for (int p = 0; p < key.length; p++) key[p] = parts.get(p).symbolOf[c];
+            Integer id = ids.get(new String(key));
+            if (id == null) {
+                id = ids.size();
+                ids.put(new String(key), id);
+                partSymbols.add(key.clone());
+            }
+            symbolOf[c] = (char) (int) id;
+        }
+
+        out.writeInt(FilterTable.MAGIC);
+        out.writeInt(FilterTable.VERSION);
+        out.writeInt(parts.size());
+        out.writeInt(partSymbols.size());
+        int ranges = 1;
+        for (int c = 1; c < 65536; c++) {
+            if (symbolOf[c] != symbolOf[c - 1]) ranges++;
+        }
+        out.writeInt(ranges);
+        for (int c = 0; c < 65536; c++) {
+            if (c == 0 || symbolOf[c] != symbolOf[c - 1]) {
+                out.writeChar(c);
+                out.writeChar(symbolOf[c]);
+            }
+        }
+
+        for (int p = 0; p < parts.size(); p++) {
+            Part part = parts.get(p);
+            int states = part.stateCount();
+            out.writeInt(part.symbolCount);
+            out.writeInt(states);
+            out.writeInt(part.start);
+            for (char[] symbols : partSymbols) out.writeChar(symbols[p]);
+            for (boolean b : part.pending) out.writeByte(b ? 1 : 0);
+            boolean narrow = states <= 65536;
+            out.writeByte(narrow ? 2 : 4);
+            for (int target : part.next) {
+                if (narrow) {
+                    out.writeChar(target);
+                } else {
+                    out.writeInt(target);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static final class Signature {
+        final int[] values;
+        final int hash;
+
+        Signature(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override public int hashCode() { return hash; }
+        @Override public boolean equals(Object o) { return o instanceof Signature && Arrays.equals(values, ((Signature) o).values); }
+    }
+}
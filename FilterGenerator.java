@@ -0,0 +1,490 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterGenerator
+// GUI-free core shared by FilterGeneratorGUI and FilterGeneratorCLI.
+// Note:
+// Nothing in this class may touch java.awt or javax.swing, so the CLI can run on headless build servers.
+//======================================================================================================================
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+public final class FilterGenerator {
+    static final String OUTPUT_FILE = "FilteredWords.yml";
+    static final String INPUT_FILE = "words.txt";
+    static final String YAML_HEADER = "filters:";
+    static final String EXCEPTIONS_HEADER = "exceptions:";
+    static final String STRIP_HEADER = "strip:";
+
+    static final String SEP_TOKEN = "(?>[\\p{Punct}\\p{Space}]|§.)";
+    static final String SEP = SEP_TOKEN + "*";
+    // Separators.colorCodes: a hex color (§x or &x plus six digits), an '&' code or a '§' code is a single token.
+    // The '&' branch stays outside the atomic group so "&a" can fall back to a plain '&' before the letter 'a'.
+    static final String COLOR_SEP_TOKEN = "(?:&(?:x(?:&[0-9a-f]){6}|[0-9a-fk-or])?|(?>§x(?:§[0-9a-f]){6}|§.|[\\p{Punct}\\p{Space}&&[^&]]))";
+    // What a consumer removes from a message before running the filters (see setStripColors). Only codes that
+    // cannot eat a letter of a word: '§' never is one, and a full &x hex run is eight codes in a row. A single '&c'
+    // is left alone ("s&ex", "pen&e"); Separators.colorCodes reads those.
+    static final String STRIP_REGEX = "(?i)§x(?:§[0-9a-f]){6}|&x(?:&[0-9a-f]){6}|§.";
+    static final Pattern COLOR_CODES = Pattern.compile(STRIP_REGEX);
+
+    static final String NORMAL_PREFIX_REGEX = "(?i)(?<=^|[^a-z0-9§])";
+    static final String NORMAL_SUFFIX_REGEX = "(?![a-z0-9§])";
+    static final String COLOR_NORMAL_SUFFIX_REGEX = "(?![a-z0-9§]|&[0-9a-fk-orx])";
+
+    static final String STRONG_PREFIX_REGEX = "(?i)";
+    static final String STRONG_BODY_PREFIX = "(?:";
+    static final String STRONG_BODY_SUFFIX = ")";
+
+    static final String STRONG_FINAL_REGEX_SEP = SEP + "?";
+    static final String COMMON_YAML_SUFFIX = ",§cx";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int GENERATE_BATCH = 1_024;
+    // On one core the fork-join hand-off only adds contention.
+    static final boolean PARALLEL = Runtime.getRuntime().availableProcessors() > 1;
+
+
+    private boolean useQuotes = false;
+    private int indentationLevel = 0;
+    private boolean genderVariants = false;
+    private boolean titles = false;
+    private int combinedPatternCount = 0;
+    private RegexCache regexCache;
+    private Set<RegexOptimizer.Pass> optimizerPasses = EnumSet.noneOf(RegexOptimizer.Pass.class);
+    private Confusables confusables = Confusables.BUILT_IN;
+    private boolean dropRedundant = false;
+    private SuffixRules suffixRules;
+    private Separators separators = Separators.UNLIMITED;
+    private Allowlist allowlist = Allowlist.EMPTY;
+    private boolean stripColors = false;
+
+    public FilterGenerator setUseQuotes(boolean useQuotes) {
+        this.useQuotes = useQuotes;
+        return this;
+    }
+
+    public FilterGenerator setIndentationLevel(int indentationLevel) {
+        this.indentationLevel = indentationLevel;
+        return this;
+    }
+
+    public FilterGenerator setGenderVariants(boolean genderVariants) {
+        this.genderVariants = genderVariants;
+        return this;
+    }
+
+    boolean isGenderVariants() {
+        return genderVariants;
+    }
+
+    public FilterGenerator setTitles(boolean titles) {
+        this.titles = titles;
+        return this;
+    }
+
+    public FilterGenerator setCombinedPatternCount(int combinedPatternCount) {
+        this.combinedPatternCount = combinedPatternCount;
+        return this;
+    }
+
+    // Combined patterns come from the trie builder and are not rewritten; the passes apply to per-word filters.
+    public FilterGenerator setOptimizerPasses(Set<RegexOptimizer.Pass> optimizerPasses) {
+        this.optimizerPasses = EnumSet.noneOf(RegexOptimizer.Pass.class);
+        this.optimizerPasses.addAll(optimizerPasses);
+        return this;
+    }
+
+    public FilterGenerator setConfusables(Confusables confusables) {
+        this.confusables = confusables;
+        return this;
+    }
+
+    Confusables getConfusables() {
+        return confusables;
+    }
+
+    // Skips words another filter already covers (see SubsumptionAnalyzer); lines are then iterated twice.
+    public FilterGenerator setDropRedundant(boolean dropRedundant) {
+        this.dropRedundant = dropRedundant;
+        return this;
+    }
+
+    // Folds the inflections of each word into one pattern; null turns folding off.
+    public FilterGenerator setSuffixRules(SuffixRules suffixRules) {
+        this.suffixRules = suffixRules;
+        return this;
+    }
+
+    SuffixRules getSuffixRules() {
+        return suffixRules;
+    }
+
+    // Limits the separator tokens between letters and between the words of a phrase (see Separators).
+    public FilterGenerator setSeparators(Separators separators) {
+        this.separators = separators;
+        return this;
+    }
+
+    Separators getSeparators() {
+        return separators;
+    }
+
+    // Words written once as the "exceptions:" section after the filters; the patterns themselves do not change.
+    public FilterGenerator setAllowlist(Allowlist allowlist) {
+        this.allowlist = allowlist;
+        return this;
+    }
+
+    Allowlist getAllowlist() {
+        return allowlist;
+    }
+
+    // Writes STRIP_REGEX once, as the "strip:" section after the filters: a consumer that removes those color codes
+    // also runs the filters over plain text. The patterns themselves do not change.
+    public FilterGenerator setStripColors(boolean stripColors) {
+        this.stripColors = stripColors;
+        return this;
+    }
+
+    // Everything besides the words that changes the output; part of the content hash of a save.
+    String describeOptions() {
+        return "quotes=" + useQuotes + " indent=" + indentationLevel + " gender=" + genderVariants + " titles=" + titles
+                + " combine=" + combinedPatternCount + " optimize=" + optimizerPasses
+                + " confusables=" + confusables.fingerprint() + " redundant=" + dropRedundant
+                + " suffixes=" + (suffixRules == null ? "off" : suffixRules.fingerprint())
+                + " separators=" + separators.fingerprint()
+                + " allowlist=" + (allowlist.isEmpty() ? "off" : allowlist.fingerprint()) + " strip=" + stripColors;
+    }
+
+    public static final class GeneratedFilter {
+        public final String title;
+        public final String regex;
+        public final boolean strong;
+        public final List<String> words;
+
+        GeneratedFilter(String title, String regex, boolean strong, List<String> words) {
+            this.title = title;
+            this.regex = regex;
+            this.strong = strong;
+            this.words = Collections.unmodifiableList(words);
+        }
+    }
+
+    // Memoizes generated patterns across runs; the key holds everything the regex depends on (word, mode, chunk).
+    public FilterGenerator setRegexCache(RegexCache regexCache) {
+        this.regexCache = regexCache;
+        return this;
+    }
+
+    public List<String> getFiltersList(Iterable<String> lines) {
+        List<String> entries = new ArrayList<>();
+        generate(lines, entries::add);
+        return entries;
+    }
+
+    public int generate(Iterable<String> lines, Consumer<String> sink) {
+        return generate(lines, sink, filter -> { });
+    }
+
+    // onFilter sees each filter right before its entry reaches the sink; the strip pattern and the allowlist's
+    // exceptions follow the last one.
+    public int generate(Iterable<String> lines, Consumer<String> sink, Consumer<GeneratedFilter> onFilter) {
+        int[] count = {0};
+        forEachFilter(lines, filter -> {
+            onFilter.accept(filter);
+            appendEntry(filter, sink);
+            count[0]++;
+        });
+        if (count[0] > 0) appendSections(sink);
+        return count[0];
+    }
+
+    // The YAML lines of one filter: its title (with setTitles) and the entry.
+    void appendEntry(GeneratedFilter filter, Consumer<String> sink) {
+        String indent = " ".repeat(indentationLevel);
+        if (titles) {
+            sink.accept(indent + "# " + filter.title);
+        }
+        sink.accept(formatEntry(filter.regex, indent));
+    }
+
+    // What follows the last filter: the "strip:" pattern and the allowlist's "exceptions:".
+    void appendSections(Consumer<String> sink) {
+        String indent = " ".repeat(indentationLevel);
+        if (stripColors) {
+            sink.accept("");
+            sink.accept(STRIP_HEADER);
+            sink.accept(useQuotes ? indent + "'" + STRIP_REGEX + "'" : indent + "- " + STRIP_REGEX);
+        }
+        if (!allowlist.isEmpty()) {
+            sink.accept("");
+            sink.accept(EXCEPTIONS_HEADER);
+            for (String word : allowlist.words()) {
+                sink.accept(useQuotes ? indent + "'" + word.replace("'", "''") + "'" : indent + "- " + word);
+            }
+        }
+    }
+
+    // Without folding, dropping redundant filters or combining, the filters of a line do not depend on the other
+    // lines, apart from gender variants already seen (see variantsOf). Callers that keep the output of unchanged
+    // lines (the GUI preview) rely on that.
+    boolean isLineLocal() {
+        return combinedPatternCount == 0 && !dropRedundant && suffixRules == null;
+    }
+
+    // The filter forEachFilter emits for one entry of variantsOf when isLineLocal(), or null for an empty one.
+    GeneratedFilter filterOf(String variant) {
+        boolean isStrong = variant.startsWith("!");
+        String clean = clean(variant);
+        if (clean.isEmpty()) return null;
+        return new GeneratedFilter(clean, regexFor(List.of(clean), isStrong), isStrong, List.of(clean));
+    }
+
+    // Lines are consumed one at a time; only the combined mode has to hold the word list. Patterns are generated
+    // GENERATE_BATCH words at a time on the common fork-join pool and reach the sink in input order.
+    public void forEachFilter(Iterable<String> lines, Consumer<GeneratedFilter> sink) {
+        List<String> normalWords = new ArrayList<>();
+        List<String> strongWords = new ArrayList<>();
+        BiPredicate<String, Boolean> keep;
+        if (dropRedundant) {
+            keep = SubsumptionAnalyzer.analyze(lines, genderVariants, confusables, suffixRules).keeper();
+        } else if (suffixRules != null) {
+            // A form already folded into an earlier pattern ("puta" after "puto") is not emitted again.
+            Set<String> seen = new HashSet<>();
+            keep = (form, isStrong) -> seen.add((isStrong ? "!" : "") + form);
+        } else {
+            keep = (form, isStrong) -> true;
+        }
+
+        List<GeneratedFilter> batch = new ArrayList<>();
+        forEachWord(lines, genderVariants, (word, isStrong) -> {
+            List<String> forms = new ArrayList<>();
+            for (String form : suffixRules == null ? List.of(word) : suffixRules.inflect(word)) {
+                if (keep.test(form, isStrong)) forms.add(form);
+            }
+            if (forms.isEmpty()) return;
+            if (combinedPatternCount > 0) {
+                (isStrong ? strongWords : normalWords).addAll(forms);
+                return;
+            }
+            // The regex is filled in by emitBatch.
+            batch.add(new GeneratedFilter(String.join(", ", forms), null, isStrong, forms));
+            if (batch.size() == GENERATE_BATCH) emitBatch(batch, sink);
+        });
+        emitBatch(batch, sink);
+
+        if (combinedPatternCount > 0) {
+            emitCombined("normal", CombinedFilterBuilder.split(normalWords, combinedPatternCount, confusables), false, sink);
+            emitCombined("strong", CombinedFilterBuilder.split(strongWords, combinedPatternCount, confusables), true, sink);
+        }
+    }
+
+    // The DFA table for the same words and options (gender, folded endings, confusables). Sorted entries keep
+    // words with a common start in the same part.
+    FilterDfa compileDfa(Iterable<String> lines, int maxStates) {
+        List<String> entries = new ArrayList<>();
+        forEachWord(lines, genderVariants, (word, isStrong) -> {
+            for (String form : suffixRules == null ? List.of(word) : suffixRules.inflect(word)) {
+                entries.add((isStrong ? "!" : "") + form);
+            }
+        });
+        entries.sort(null);
+        return FilterDfa.compile(entries, confusables, separators, maxStates);
+    }
+
+    // Shared by every consumer of words.txt: trims, skips comments, expands gender variants and splits off the '!'.
+    // Spaces inside an entry collapse to one, the word gap of a phrase.
+    static void forEachWord(Iterable<String> lines, boolean genderVariants, BiConsumer<String, Boolean> action) {
+        Set<String> seen = new HashSet<>();
+        for (String line : lines) {
+            for (String r : variantsOf(line, genderVariants)) {
+                if (genderVariants && !seen.add(r)) continue;
+
+                String clean = clean(r);
+                if (clean.isEmpty()) continue;
+                action.accept(clean, r.startsWith("!"));
+            }
+        }
+    }
+
+    // The entries of one line as written, '!' included; with gender variants a repeat of an earlier entry is
+    // skipped by forEachWord.
+    static List<String> variantsOf(String line, boolean genderVariants) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) return List.of();
+        return genderVariants ? genderVariantsOf(line) : List.of(line);
+    }
+
+    private static String clean(String variant) {
+        String clean = variant.startsWith("!") ? variant.substring(1) : variant;
+        return WHITESPACE.matcher(clean.toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+
+    // The output file is only touched once the first entry exists, matching the GUI's "nothing saved" behaviour.
+    // Entries go to a temp file next to it that replaces the output in one atomic move at the end.
+    public int writeStreaming(BufferedReader reader, String filename) throws IOException {
+        return writeStreaming(() -> reader.lines().iterator(), filename, filter -> { });
+    }
+
+    public int writeStreaming(Iterable<String> lines, String filename, Consumer<GeneratedFilter> onFilter) throws IOException {
+        Path target = Paths.get(filename);
+        Path[] tmp = new Path[1];
+        BufferedWriter[] writer = new BufferedWriter[1];
+        try {
+            int count = generate(lines, entry -> {
+                try {
+                    if (writer[0] == null) {
+                        tmp[0] = IncrementalSaver.tempFile(target);
+                        writer[0] = Files.newBufferedWriter(tmp[0], StandardCharsets.UTF_8);
+                        writer[0].write(YAML_HEADER);
+                        writer[0].newLine();
+                        writer[0].newLine();
+                    }
+                    writer[0].write(entry);
+                    writer[0].newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, onFilter);
+            if (writer[0] != null) {
+                writer[0].close();
+                writer[0] = null;
+                IncrementalSaver.moveIntoPlace(tmp[0], target);
+                tmp[0] = null;
+            }
+            return count;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (writer[0] != null) writer[0].close();
+            if (tmp[0] != null) Files.deleteIfExists(tmp[0]);
+        }
+    }
+
+    private void emitBatch(List<GeneratedFilter> batch, Consumer<GeneratedFilter> sink) {
+        String[] regexes = new String[batch.size()];
+        indices(regexes.length).forEach(i -> regexes[i] = regexFor(batch.get(i).words, batch.get(i).strong));
+        for (int i = 0; i < regexes.length; i++) {
+            GeneratedFilter filter = batch.get(i);
+            sink.accept(new GeneratedFilter(filter.title, regexes[i], filter.strong, filter.words));
+        }
+        batch.clear();
+    }
+
+    // One word, or the forms of one word folded into a single pattern.
+    private String regexFor(List<String> forms, boolean isStrong) {
+        if (forms.size() > 1) {
+            return cached(cachePrefix() + (isStrong ? "fold!" : "fold ") + String.join("\n", forms), () -> isStrong
+                    ? CombinedFilterBuilder.strongPattern(forms, confusables, separators)
+                    : CombinedFilterBuilder.normalPattern(forms, confusables, separators));
+        }
+        String clean = forms.get(0);
+        return optimizerPasses.isEmpty()
+                ? cached(cachePrefix() + (isStrong ? "!" : "") + clean, () -> isStrong
+                        ? FilterPattern.strongFilter(clean, true, confusables, separators).render()
+                        : FilterPattern.normal(clean, true, confusables, separators).render())
+                : cached(cachePrefix() + optimizerPasses + (isStrong ? "!" : "") + clean, () -> RegexOptimizer.optimize(isStrong
+                        ? FilterPattern.strongFilter(clean, true, confusables, separators)
+                        : FilterPattern.normal(clean, true, confusables, separators), optimizerPasses).render());
+    }
+
+    private static IntStream indices(int count) {
+        IntStream indices = IntStream.range(0, count);
+        return PARALLEL ? indices.parallel() : indices;
+    }
+
+    private void emitCombined(String title, List<List<String>> chunks, boolean strong, Consumer<GeneratedFilter> sink) {
+        String[] regexes = new String[chunks.size()];
+        indices(regexes.length).forEach(i -> {
+            List<String> chunk = chunks.get(i);
+            regexes[i] = cached(cachePrefix() + (strong ? "combined!" : "combined ") + String.join("\n", chunk), () -> strong
+                    ? CombinedFilterBuilder.strongPattern(chunk, confusables, separators)
+                    : CombinedFilterBuilder.normalPattern(chunk, confusables, separators));
+        });
+        for (int i = 0; i < chunks.size(); i++) {
+            sink.accept(new GeneratedFilter(title + " " + (i + 1) + "/" + chunks.size(), regexes[i], strong, chunks.get(i)));
+        }
+    }
+
+    // Keys made with the built-in table and unbounded separators stay as they always were; other settings get
+    // their own key space.
+    private String cachePrefix() {
+        String prefix = confusables == Confusables.BUILT_IN ? "" : confusables.fingerprint() + "#";
+        return separators.bounded() || separators.colorCodes ? prefix + "sep" + separators.fingerprint() + "#" : prefix;
+    }
+
+    private String cached(String key, Supplier<String> generator) {
+        if (regexCache == null) return generator.get();
+        return regexCache.computeIfAbsent(key, generator);
+    }
+
+    private String formatEntry(String rawRegex, String indent) {
+        if (useQuotes) {
+            return indent + "'" + rawRegex + COMMON_YAML_SUFFIX + "'";
+        }
+        return indent + "- " + rawRegex + COMMON_YAML_SUFFIX;
+    }
+
+    static List<String> addGenderVariantsPreserveBang(List<String> input) {
+        LinkedHashSet<String> set = new LinkedHashSet<>();
+        for (String s : input) {
+            set.addAll(genderVariantsOf(s));
+        }
+        return new ArrayList<>(set);
+    }
+
+    private static List<String> genderVariantsOf(String s) {
+        boolean isStrong = s.startsWith("!");
+        String core = isStrong ? s.substring(1) : s;
+        String bang = isStrong ? "!" : "";
+        if (core.endsWith("o")) {
+            return List.of(bang + core, bang + core.substring(0, core.length() - 1) + "a");
+        }
+        return List.of(bang + core);
+    }
+
+    static String generateNormalRegex(String word) {
+        return generateNormalRegex(word, true);
+    }
+
+    static String generateNormalRegex(String word, boolean guardian) {
+        if (word.isEmpty()) return "";
+        return FilterPattern.normal(word, guardian).render();
+    }
+
+    static String generateStrongRegex(String word) {
+        return generateStrongRegex(word, true);
+    }
+
+    static String generateStrongRegex(String word, boolean guardian) {
+        if (word.isEmpty()) return "";
+        return FilterPattern.strong(word, guardian).render();
+    }
+
+    static void writeFile(String filename, String header, List<String> entries) throws IOException {
+        IncrementalSaver.writeAtomically(Paths.get(filename), writer -> {
+            writer.write(header);
+            writer.newLine();
+            writer.newLine();
+            for (String e : entries) {
+                writer.write(e);
+                writer.newLine();
+            }
+        });
+    }
+}
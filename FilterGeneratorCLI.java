@@ -0,0 +1,328 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterGeneratorCLI
+// Headless batch mode: reads words.txt and streams FilteredWords.yml without loading AWT/Swing.
+// Usage:
+// java FilterGeneratorCLI [-i words.txt] [-o FilteredWords.yml] [--quotes] [--indent 0|2|4] [--titles] [--gender]
+//                         [--combine N] [--analyze] [--max-steps N] [--optimize all|none|PASS,...]
+//                         [--confusables confusables.txt] [--drop-redundant] [--fold es|en|...]
+//                         [--dfa] [--prescreen] [--max-sep N] [--word-gap N] [--cache FilteredWords.cache]
+//                         [--profile chat.txt [--json]] [--allowlist allowlist.txt] [--watch]
+//                         [--colors] [--strip-colors]
+// Passes: classes, trailing, possessive (see RegexOptimizer; java RegexOptimizerCheck checks them).
+// --drop-redundant leaves out filters another entry already covers and lists them (see SubsumptionAnalyzer).
+// --fold LANG folds the inflections of each word (suffixes.txt or the built-in rules, see SuffixRules) into one pattern.
+// --dfa also writes the list as minimized DFAs next to the output (FilteredWords.dfa, see FilterDfa/FilterTable):
+// several parts of at most 20k states, each scanning the message once, so a message costs length x parts reads.
+// --prescreen also writes the letter signature of every entry and a gatekeeper class (FilteredWords.prescreen,
+// see PreScreen), so a consumer only runs the filters a message can possibly match.
+// --max-sep N accepts at most N separator tokens between letters, --word-gap N between the words of a phrase
+// ("hijo de puta" in words.txt); both are unbounded by default (see Separators).
+// --colors counts a whole color code (&c, §c, &x&f&f&0&0&0&0, §x§f...) as one separator token, so rainbow text
+// ("&cp&6u&et&aa") is caught; it cannot be combined with --dfa.
+// --strip-colors writes a "strip:" section telling the consumer to remove color codes before matching.
+// --cache FILE reuses the patterns generated by earlier runs and adds the new ones (see RegexCache).
+// --profile FILE runs every filter over the messages in FILE (one per line) and prints the characters the regex
+// engine read per filter as CSV, most work first (--json for JSON); nothing is written (see FilterProfiler).
+// --watch keeps running after the first save and regenerates the output (and the pre-screen) whenever the input
+// changes, logging how long after the change the file was written; stop it with Ctrl+C (see WordListWatcher).
+// Without --confusables, confusables.txt is used when it exists in the working directory (see Confusables); the
+// same goes for --allowlist and allowlist.txt, whose words are written once as "exceptions:" (see Allowlist).
+//======================================================================================================================
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class FilterGeneratorCLI {
+
+    private static void printUsage() {
+        System.err.println("Usage: java FilterGeneratorCLI [-i words.txt] [-o FilteredWords.yml] [--quotes] [--indent 0|2|4]");
+        System.err.println("                               [--titles] [--gender] [--combine N] [--analyze] [--max-steps N]");
+        System.err.println("                               [--optimize all|none|classes,trailing,possessive]");
+        System.err.println("                               [--confusables confusables.txt] [--drop-redundant] [--fold es|en|...] [--dfa] [--prescreen]");
+        System.err.println("                               [--max-sep N] [--word-gap N] [--cache FilteredWords.cache]");
+        System.err.println("                               [--profile chat.txt [--json]] [--allowlist allowlist.txt] [--watch]");
+        System.err.println("                               [--colors] [--strip-colors]");
+    }
+
+    public static void main(String[] args) {
+        String input = FilterGenerator.INPUT_FILE;
+        String output = FilterGenerator.OUTPUT_FILE;
+        FilterGenerator generator = new FilterGenerator();
+        boolean analyze = false;
+        long maxSteps = FilterSafetyAnalyzer.DEFAULT_MAX_STEPS;
+        Set<RegexOptimizer.Pass> passes = Set.of();
+        String confusablesFile = null;
+        String allowlistFile = null;
+        boolean dropRedundant = false;
+        String foldLanguage = null;
+        boolean writeDfa = false;
+        boolean writePreScreen = false;
+        int maxSeparators = Separators.UNBOUNDED;
+        int wordGap = Separators.UNBOUNDED;
+        String cacheFile = null;
+        String profileCorpus = null;
+        boolean json = false;
+        boolean watch = false;
+        boolean colors = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-i": case "--input": input = args[++i]; break;
+                    case "-o": case "--output": output = args[++i]; break;
+                    case "--quotes": generator.setUseQuotes(true); break;
+                    case "--indent": generator.setIndentationLevel(Integer.parseInt(args[++i])); break;
+                    case "--titles": generator.setTitles(true); break;
+                    case "--gender": generator.setGenderVariants(true); break;
+                    case "--combine": generator.setCombinedPatternCount(Integer.parseInt(args[++i])); break;
+                    case "--analyze": analyze = true; break;
+                    case "--max-steps": maxSteps = Long.parseLong(args[++i]); break;
+                    case "--optimize": passes = RegexOptimizer.parsePasses(args[++i]); break;
+                    case "--confusables": confusablesFile = args[++i]; break;
+                    case "--allowlist": allowlistFile = args[++i]; break;
+                    case "--drop-redundant": dropRedundant = true; break;
+                    case "--fold": foldLanguage = args[++i]; break;
+                    case "--dfa": writeDfa = true; break;
+                    case "--prescreen": writePreScreen = true; break;
+                    case "--max-sep": maxSeparators = Integer.parseInt(args[++i]); break;
+                    case "--word-gap": wordGap = Integer.parseInt(args[++i]); break;
+                    case "--cache": cacheFile = args[++i]; break;
+                    case "--profile": profileCorpus = args[++i]; break;
+                    case "--json": json = true; break;
+                    case "--watch": watch = true; break;
+                    case "--colors": colors = true; break;
+                    case "--strip-colors": generator.setStripColors(true); break;
+                    case "-h": case "--help": printUsage(); return;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        printUsage();
+                        System.exit(2);
+                        return;
+                }
+            }
+            generator.setSeparators(new Separators(maxSeparators, wordGap, colors));
+            if (writeDfa && colors) {
+                throw new IllegalArgumentException("--dfa cannot be combined with --colors");
+            }
+            if (json && profileCorpus == null) {
+                throw new IllegalArgumentException("--json only applies to --profile");
+            }
+            if (watch && (writeDfa || profileCorpus != null)) {
+                throw new IllegalArgumentException("--watch cannot be combined with --dfa or --profile");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        try {
+            generator.setConfusables(confusablesFile == null
+                    ? Confusables.loadDefault()
+                    : Confusables.load(Paths.get(confusablesFile)));
+        } catch (IOException e) {
+            System.err.println("Error reading confusables: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        try {
+            generator.setAllowlist(allowlistFile == null
+                    ? Allowlist.loadDefault()
+                    : Allowlist.load(Paths.get(allowlistFile)));
+        } catch (IOException e) {
+            System.err.println("Error reading allowlist: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (foldLanguage != null) {
+            try {
+                generator.setSuffixRules(SuffixRules.loadDefault(foldLanguage));
+            } catch (IOException e) {
+                System.err.println("Error reading suffix rules: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        RegexCache cache = new RegexCache();
+        long cacheStart = System.nanoTime();
+        if (cacheFile != null) {
+            try {
+                cache = RegexCache.load(Paths.get(cacheFile));
+            } catch (IOException e) {
+                System.err.println("Ignoring " + cacheFile + ": " + e.getMessage());
+            }
+        }
+        generator.setRegexCache(cache);
+        long cacheMillis = (System.nanoTime() - cacheStart) / 1_000_000;
+        generator.setOptimizerPasses(passes);
+        generator.setDropRedundant(dropRedundant);
+        if (dropRedundant) reportRedundant(generator, input);
+
+        if (profileCorpus != null) {
+            profile(generator, input, profileCorpus, maxSteps, json);
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (watch) {
+            // With --analyze every rebuild is checked, not only this first one.
+            FilterSafetyAnalyzer safety = analyze ? new FilterSafetyAnalyzer(maxSteps,
+                    FilterSafetyAnalyzer.DEFAULT_SEARCH_STEPS, generator.getConfusables()) : null;
+            watch(generator, cache, cacheFile, input, output, writePreScreen, safety);
+            return;
+        }
+
+        if (analyze && !isSafe(generator, input, maxSteps)) {
+            System.err.println("Nothing saved to " + output + ": filters exceed " + maxSteps + " backtracking steps");
+            System.exit(3);
+            return;
+        }
+
+        // WordListFile can be iterated more than once, which --drop-redundant needs.
+        try (WordListFile lines = WordListFile.open(Paths.get(input))) {
+            PreScreen.Builder preScreen = new PreScreen.Builder(generator.getConfusables());
+            int count = generator.writeStreaming(lines, output, writePreScreen ? preScreen::add : filter -> { });
+            if (count == 0) {
+                System.err.println("No words found. Nothing saved to " + output);
+                System.exit(1);
+                return;
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Saved " + count + " filters to " + output + " in " + millis + " ms (regex cache: "
+                    + cache.loaded() + " loaded in " + cacheMillis + " ms, " + cache.hits() + " hits, " + cache.generated() + " generated)");
+            if (cacheFile != null) cache.save(Paths.get(cacheFile));
+            if (writeDfa) writeDfa(generator, lines, output);
+            if (writePreScreen) writePreScreen(preScreen.build(), output);
+        } catch (IOException e) {
+            System.err.println("Error generating " + output + " from " + input + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void watch(FilterGenerator generator, RegexCache cache, String cacheFile, String input, String output,
+                              boolean writePreScreen, FilterSafetyAnalyzer safety) {
+        try (WordListWatcher watcher = new WordListWatcher(generator, cache, Paths.get(input), Paths.get(output),
+                writePreScreen, safety, System.out)) {
+            if (cacheFile != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        cache.save(Paths.get(cacheFile));
+                    } catch (IOException e) {
+                        System.err.println("Error saving " + cacheFile + ": " + e.getMessage());
+                    }
+                }));
+            }
+            System.out.println("Watching " + input + " for changes (Ctrl+C to stop)");
+            watcher.run();
+        } catch (IOException e) {
+            System.err.println("Cannot watch " + input + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void writeDfa(FilterGenerator generator, WordListFile lines, String output) throws IOException {
+        long start = System.nanoTime();
+        Path target = sibling(output, ".dfa");
+        FilterDfa dfa;
+        try {
+            dfa = generator.compileDfa(lines, FilterDfa.DEFAULT_MAX_STATES);
+        } catch (IllegalStateException e) {
+            System.err.println("No DFA written: " + e.getMessage());
+            return;
+        }
+        dfa.write(target);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Saved " + dfa.parts.size() + " DFAs, " + dfa.stateCount() + " states (" + Files.size(target)
+                + " bytes) to " + target + " in " + millis + " ms");
+    }
+
+    private static void writePreScreen(PreScreen preScreen, String output) throws IOException {
+        Path target = sibling(output, PreScreen.EXTENSION);
+        preScreen.write(target);
+        String gatekeeper = preScreen.gatekeeperRegex();
+        System.out.println("Saved the pre-screen of " + preScreen.size() + " filters to " + target
+                + (gatekeeper == null ? " (no gatekeeper: some filter needs no particular letter)" : " (gatekeeper " + gatekeeper + ")"));
+    }
+
+    // FilteredWords.yml -> FilteredWords.dfa
+    static Path sibling(String output, String extension) {
+        return Paths.get(output.endsWith(".yml") ? output.substring(0, output.length() - 4) + extension : output + extension);
+    }
+
+    private static void reportRedundant(FilterGenerator generator, String input) {
+        SubsumptionAnalyzer.Result result;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8))) {
+            result = SubsumptionAnalyzer.analyze(() -> reader.lines().iterator(), generator.isGenderVariants(),
+                    generator.getConfusables(), generator.getSuffixRules());
+        } catch (IOException e) {
+            System.err.println("Error reading " + input + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        for (SubsumptionAnalyzer.Redundancy r : result.redundant) {
+            System.out.println("REDUNDANT " + r);
+        }
+        System.out.println("Dropped " + result.redundant.size() + " redundant filters");
+    }
+
+    private static void profile(FilterGenerator generator, String input, String corpus, long maxSteps, boolean json) {
+        List<FilterGenerator.GeneratedFilter> filters = new ArrayList<>();
+        List<String> messages = new ArrayList<>();
+        try (WordListFile lines = WordListFile.open(Paths.get(input))) {
+            generator.forEachFilter(lines, filters::add);
+            for (String line : Files.readAllLines(Paths.get(corpus), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) messages.add(line);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading " + input + " or " + corpus + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        List<FilterProfiler.Profile> profiles = new ArrayList<>(new FilterProfiler(maxSteps).profile(filters, messages));
+        profiles.sort(FilterProfiler.BY_TOTAL);
+        // UTF-8 whatever the console encoding, so '§' in the worst messages survives a redirect to a file.
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            if (json) {
+                FilterProfiler.writeJson(profiles, out);
+            } else {
+                FilterProfiler.writeCsv(profiles, out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error writing the profile: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static boolean isSafe(FilterGenerator generator, String input, long maxSteps) {
+        List<FilterGenerator.GeneratedFilter> filters = new ArrayList<>();
+        // Re-iterable: with --drop-redundant, forEachFilter reads the list twice.
+        try (WordListFile lines = WordListFile.open(Paths.get(input))) {
+            generator.forEachFilter(lines, filters::add);
+        } catch (IOException e) {
+            System.err.println("Error reading " + input + ": " + e.getMessage());
+            System.exit(1);
+        }
+
+        boolean safe = true;
+        FilterSafetyAnalyzer analyzer = new FilterSafetyAnalyzer(maxSteps, FilterSafetyAnalyzer.DEFAULT_SEARCH_STEPS,
+                generator.getConfusables());
+        for (FilterSafetyAnalyzer.Report r : analyzer.analyzeAll(filters)) {
+            System.out.println((r.exceeded ? "UNSAFE " : "ok     ") + r.filter.title + ": "
+                    + (r.exceeded ? "> " + maxSteps : r.worstSteps) + " steps");
+            for (String w : r.warnings) {
+                System.out.println("         " + w);
+            }
+            safe &= !r.exceeded;
+        }
+        return safe;
+    }
+}
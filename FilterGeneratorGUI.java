@@ -10,14 +10,22 @@
 //======================================================================================================================
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.Locale;
-import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
 import javax.swing.text.Style;
 import javax.swing.text.StyleConstants;
 import javax.swing.text.StyledDocument;
@@ -27,52 +35,83 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
 public class FilterGeneratorGUI extends JFrame {
-    private static final String OUTPUT_FILE = "FilteredWords.yml";
-    private static final String INPUT_FILE = "words.txt";
+    private static final String OUTPUT_FILE = FilterGenerator.OUTPUT_FILE;
+    private static final String INPUT_FILE = FilterGenerator.INPUT_FILE;
 
-    private static final String SEP = "(?>[\\p{Punct}\\p{Space}]|§.)*";
+    private boolean isDirty = false;
+    private enum Language { SPANISH, ENGLISH }
 
-    private static final String NORMAL_PREFIX_REGEX = "(?i)(?<=^|[^a-z0-9§])";
-    private static final String NORMAL_SUFFIX_REGEX = "(?![a-z0-9§])";
+    private static final class PreviewUpdate {
+        final java.util.List<String> lines;
+        final LivePreview state;
 
-    private static final String STRONG_PREFIX_REGEX = "(?i)";
-    private static final String STRONG_BODY_PREFIX = "(?:";
-    private static final String STRONG_BODY_SUFFIX = ")";
-    
-    private static final String STRONG_FINAL_REGEX_SEP = SEP + "?"; 
-    private static final String COMMON_YAML_SUFFIX = ",§cx"; 
+        PreviewUpdate(java.util.List<String> lines, LivePreview state) {
+            this.lines = lines;
+            this.state = state;
+        }
+    }
 
+    // The preview's document: a run of whole lines goes in as one insert (one event, one layout pass) instead of
+    // one insertString per line.
+    private static final class PreviewDocument extends DefaultStyledDocument {
+        private static final long serialVersionUID = 1L;
 
-    private static final Map<Character, String> VARIANTS = new HashMap<>();
-    static {
-        VARIANTS.put('a', "aáÁäÄ"); VARIANTS.put('b', "bv"); VARIANTS.put('c', "ckçÇ");
-        VARIANTS.put('d', "d"); VARIANTS.put('e', "eéÉëË3"); VARIANTS.put('f', "f");
-        VARIANTS.put('g', "g9"); VARIANTS.put('h', "h"); VARIANTS.put('i', "i1!íl|");
-        VARIANTS.put('j', "jJ"); VARIANTS.put('k', "kK"); VARIANTS.put('l', "l|!");
-        VARIANTS.put('m', "m"); VARIANTS.put('n', "nñÑ"); VARIANTS.put('o', "o0óÓ");
-        VARIANTS.put('p', "p"); VARIANTS.put('q', "q"); VARIANTS.put('r', "r");
-        VARIANTS.put('s', "s$5"); VARIANTS.put('t', "t7"); VARIANTS.put('u', "uú");
-        VARIANTS.put('v', "vb"); VARIANTS.put('w', "w"); VARIANTS.put('x', "x×");
-        VARIANTS.put('y', "y"); VARIANTS.put('z', "z2");
+        // offset is the start of a line. Closing the paragraph before it first keeps the new lines out of it.
+        void insertLines(int offset, java.util.List<String> lines, java.util.function.Function<String, AttributeSet> style)
+                throws BadLocationException {
+            if (lines.isEmpty()) return;
+            AttributeSet paragraph = getParagraphElement(offset).getAttributes();
+            java.util.List<ElementSpec> specs = new ArrayList<>();
+            if (offset > 0) {
+                specs.add(new ElementSpec(null, ElementSpec.EndTagType));
+                specs.add(new ElementSpec(paragraph, ElementSpec.StartTagType));
+            }
+            for (String line : lines) {
+                char[] text = (line + "\n").toCharArray();
+                specs.add(new ElementSpec(style.apply(line).copyAttributes(), ElementSpec.ContentType, text, 0, text.length));
+                specs.add(new ElementSpec(null, ElementSpec.EndTagType));
+                specs.add(new ElementSpec(paragraph, ElementSpec.StartTagType));
+            }
+            insert(offset, specs.toArray(new ElementSpec[0]));
+        }
     }
-
-    private boolean isDirty = false;
-    private enum Language { SPANISH, ENGLISH }
     private Language currentLanguage = Language.SPANISH;
 
     private boolean useQuotes = false;
     private int indentationLevel = 0;
+    private static final int[] COMBINED_PATTERN_COUNTS = {0, 1, 2, 4, 8};
+    private int combinedPatternCount = 0;
+    // Tokens between letters; a phrase may have twice as many between its words.
+    private static final int[] SEPARATOR_LIMITS = {Separators.UNBOUNDED, 8, 4, 2};
+    private int separatorLimit = Separators.UNBOUNDED;
 
     private JTextArea wordsTextArea;
+    private JList<String> wordsList;
+    private WordListModel wordListModel;
+    private JTextField wordEditField;
+    private JButton addWordButton;
+    private JButton replaceWordButton;
+    private JButton deleteWordButton;
+    private CardLayout wordsCards;
+    private JPanel wordsCardPanel;
     private JCheckBox enableGenderVariantsCheckbox;
     private JCheckBox enableTitlesCheckbox;
+    private JCheckBox enableOptimizerCheckbox;
+    private JCheckBox dropRedundantCheckbox;
+    private JCheckBox foldSuffixesCheckbox;
+    private JCheckBox colorCodesCheckbox;
+    private JCheckBox stripColorsCheckbox;
     private JButton saveFilesButton;
     private JButton languageButton;
     private JButton quoteButton;
     private JButton indentButton;
+    private JButton combinedButton;
+    private JButton separatorsButton;
+    private JButton analyzeButton;
+    private JCheckBox checkBeforeSaveCheckbox;
     
     private JTextPane outputTextPane; 
-    private StyledDocument outputDoc;
+    private PreviewDocument outputDoc;
     private Style styleDefault;
     private Style styleComment;
     private Style styleWarning;
@@ -80,6 +119,19 @@ public class FilterGeneratorGUI extends JFrame {
     private static final Color COLOR_YML_COMMENT = new Color(0, 150, 136);
     private static final Color COLOR_WARNING = new Color(200, 100, 0);
 
+    private JTextArea testMessagesArea;
+    private JTextPane testResultsPane;
+    private StyledDocument testResultsDoc;
+    private Style styleHighlight;
+    private JButton loadLogButton;
+    private JButton runTestButton;
+    private JButton profileButton;
+    private TitledBorder testerBorder;
+    private final FilterTester filterTester = new FilterTester();
+    private final FilterProfiler filterProfiler = new FilterProfiler();
+
+    private static final Color COLOR_HIGHLIGHT = new Color(255, 205, 210);
+
     private JLabel titleLabel;
     private JLabel descriptionLabel;
     private JLabel instructionLabel;
@@ -91,10 +143,33 @@ public class FilterGeneratorGUI extends JFrame {
     
     private boolean isUpdatingFromLoad = false;
 
+    private Confusables confusables = Confusables.BUILT_IN;
+    private SuffixRules suffixRules = SuffixRules.builtIn(SUFFIX_LANGUAGE);
+    private Allowlist allowlist = Allowlist.EMPTY;
+    private FilterSafetyAnalyzer safetyAnalyzer = new FilterSafetyAnalyzer();
+    private final IncrementalSaver outputSaver = new IncrementalSaver(Paths.get(OUTPUT_FILE));
+
+    private static final int PREVIEW_DEBOUNCE_MS = 200;
+    private static final String SUFFIX_LANGUAGE = "es";
+    private static final int LARGE_LIST_LINES = 20_000;
+    private static final int LARGE_PREVIEW_WORDS = 1_000;
+    private static final int ANALYZE_BATCH = 1_024;
+    private final long startNanos = System.nanoTime();
+    private RegexCache regexCache = new RegexCache();
+    private boolean startupLogged = false;
+    private final Timer previewTimer = new Timer(PREVIEW_DEBOUNCE_MS, e -> updateOutputPreview());
+    private SwingWorker<PreviewUpdate, Void> previewWorker;
+    private java.util.List<String> previewLines;
+    private LivePreview livePreview;
+
     public FilterGeneratorGUI() {
         initComponents();
         setupStyles();
         updateLanguage();
+        loadConfusables();
+        loadSuffixRules();
+        loadAllowlist();
+        loadRegexCache();
         loadExistingWords();
         setupSaveOnExit();
         setupSaveShortcut();
@@ -120,20 +195,46 @@ public class FilterGeneratorGUI extends JFrame {
         wordsTextArea.setLineWrap(true);
         wordsTextArea.setWrapStyleWord(true);
         JScrollPane wordsScrollPane = new JScrollPane(wordsTextArea);
+
+        // Large lists: a fixed cell size lets the JList paint only the visible rows without measuring the others.
+        wordsList = new JList<>();
+        wordsList.setPrototypeCellValue("XXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXX");
+        wordsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        wordEditField = new JTextField();
+        addWordButton = new JButton();
+        replaceWordButton = new JButton();
+        deleteWordButton = new JButton();
         
         enableGenderVariantsCheckbox = new JCheckBox();
         enableTitlesCheckbox = new JCheckBox();
+        enableOptimizerCheckbox = new JCheckBox();
+        dropRedundantCheckbox = new JCheckBox();
+        foldSuffixesCheckbox = new JCheckBox();
+        colorCodesCheckbox = new JCheckBox();
+        stripColorsCheckbox = new JCheckBox();
         
         saveFilesButton = new JButton();
         languageButton = new JButton();
         
         quoteButton = new JButton();
         indentButton = new JButton();
+        combinedButton = new JButton();
+        separatorsButton = new JButton();
+        analyzeButton = new JButton();
+        checkBeforeSaveCheckbox = new JCheckBox();
 
-        outputTextPane = new JTextPane();
+        outputDoc = new PreviewDocument();
+        outputTextPane = new JTextPane(outputDoc);
         outputTextPane.setEditable(false);
-        outputDoc = outputTextPane.getStyledDocument();
         JScrollPane outputScrollPane = new JScrollPane(outputTextPane);
+
+        testMessagesArea = new JTextArea();
+        testResultsPane = new JTextPane();
+        testResultsPane.setEditable(false);
+        testResultsDoc = testResultsPane.getStyledDocument();
+        loadLogButton = new JButton();
+        runTestButton = new JButton();
+        profileButton = new JButton();
         
         setLayout(new BorderLayout(10, 10));
 
@@ -149,11 +250,31 @@ public class FilterGeneratorGUI extends JFrame {
         inputPanel = new JPanel(new BorderLayout(5, 5));
         inputBorder = BorderFactory.createTitledBorder("");
         inputPanel.setBorder(inputBorder);
-        inputPanel.add(wordsScrollPane, BorderLayout.CENTER);
+        JPanel largeListPanel = new JPanel(new BorderLayout(5, 5));
+        largeListPanel.add(new JScrollPane(wordsList), BorderLayout.CENTER);
+        JPanel editBar = new JPanel(new BorderLayout(5, 5));
+        editBar.add(wordEditField, BorderLayout.CENTER);
+        JPanel editButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        editButtons.add(addWordButton);
+        editButtons.add(replaceWordButton);
+        editButtons.add(deleteWordButton);
+        editBar.add(editButtons, BorderLayout.EAST);
+        largeListPanel.add(editBar, BorderLayout.SOUTH);
+
+        wordsCards = new CardLayout();
+        wordsCardPanel = new JPanel(wordsCards);
+        wordsCardPanel.add(wordsScrollPane, "text");
+        wordsCardPanel.add(largeListPanel, "list");
+        inputPanel.add(wordsCardPanel, BorderLayout.CENTER);
         
         JPanel optionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         optionsPanel.add(enableGenderVariantsCheckbox);
         optionsPanel.add(enableTitlesCheckbox);
+        optionsPanel.add(enableOptimizerCheckbox);
+        optionsPanel.add(dropRedundantCheckbox);
+        optionsPanel.add(foldSuffixesCheckbox);
+        optionsPanel.add(colorCodesCheckbox);
+        optionsPanel.add(stripColorsCheckbox);
         inputPanel.add(optionsPanel, BorderLayout.SOUTH);
         centerPanel.add(inputPanel);
         
@@ -161,7 +282,23 @@ public class FilterGeneratorGUI extends JFrame {
         outputBorder = BorderFactory.createTitledBorder("");
         outputPanel.setBorder(outputBorder);
         outputPanel.add(outputScrollPane, BorderLayout.CENTER);
-        centerPanel.add(outputPanel);
+
+        JPanel testerPanel = new JPanel(new BorderLayout(5, 5));
+        testerBorder = BorderFactory.createTitledBorder("");
+        testerPanel.setBorder(testerBorder);
+        JSplitPane testerSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(testMessagesArea), new JScrollPane(testResultsPane));
+        testerSplit.setResizeWeight(0.4);
+        testerPanel.add(testerSplit, BorderLayout.CENTER);
+        JPanel testerButtons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        testerButtons.add(loadLogButton);
+        testerButtons.add(runTestButton);
+        testerButtons.add(profileButton);
+        testerPanel.add(testerButtons, BorderLayout.SOUTH);
+
+        JSplitPane outputSplit = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, outputPanel, testerPanel);
+        outputSplit.setResizeWeight(0.6);
+        centerPanel.add(outputSplit);
         
         add(centerPanel, BorderLayout.CENTER);
         
@@ -170,6 +307,10 @@ public class FilterGeneratorGUI extends JFrame {
         buttonPanel.add(languageButton);
         buttonPanel.add(quoteButton);
         buttonPanel.add(indentButton);
+        buttonPanel.add(combinedButton);
+        buttonPanel.add(separatorsButton);
+        buttonPanel.add(analyzeButton);
+        buttonPanel.add(checkBeforeSaveCheckbox);
         add(buttonPanel, BorderLayout.SOUTH);
         
         saveFilesButton.addActionListener(e -> saveFiles());
@@ -177,7 +318,25 @@ public class FilterGeneratorGUI extends JFrame {
         
         quoteButton.addActionListener(e -> toggleQuotes());
         indentButton.addActionListener(e -> cycleIndentation());
+        combinedButton.addActionListener(e -> cycleCombinedMode());
+        separatorsButton.addActionListener(e -> cycleSeparatorLimit());
+        analyzeButton.addActionListener(e -> showSafetyAnalysis());
+        loadLogButton.addActionListener(e -> loadTestLog());
+        runTestButton.addActionListener(e -> runFilterTest());
+        profileButton.addActionListener(e -> runProfiler());
+        addWordButton.addActionListener(e -> addWord());
+        replaceWordButton.addActionListener(e -> replaceSelectedWord());
+        deleteWordButton.addActionListener(e -> deleteSelectedWord());
+        wordEditField.addActionListener(e -> {
+            if (wordsList.getSelectedIndex() >= 0) replaceSelectedWord(); else addWord();
+        });
+        wordsList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && wordsList.getSelectedValue() != null) {
+                wordEditField.setText(wordsList.getSelectedValue());
+            }
+        });
 
+        previewTimer.setRepeats(false);
         wordsTextArea.getDocument().addDocumentListener(new DocumentListener() {
             @Override public void insertUpdate(DocumentEvent e) { updateLive(); }
             @Override public void removeUpdate(DocumentEvent e) { updateLive(); }
@@ -185,10 +344,15 @@ public class FilterGeneratorGUI extends JFrame {
         });
         enableGenderVariantsCheckbox.addActionListener(e -> { updateOutputPreview(); isDirty = true; });
         enableTitlesCheckbox.addActionListener(e -> { updateOutputPreview(); isDirty = true; });
+        enableOptimizerCheckbox.addActionListener(e -> { updateOutputPreview(); isDirty = true; });
+        dropRedundantCheckbox.addActionListener(e -> { updateOutputPreview(); isDirty = true; });
+        foldSuffixesCheckbox.addActionListener(e -> { updateOutputPreview(); isDirty = true; });
+        colorCodesCheckbox.addActionListener(e -> { updateOutputPreview(); isDirty = true; });
+        stripColorsCheckbox.addActionListener(e -> { updateOutputPreview(); isDirty = true; });
         
         ((JPanel)getContentPane()).setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
-        setSize(800, 750); 
+        setSize(1100, 750); 
     }
     
     private void setupStyles() {
@@ -204,6 +368,11 @@ public class FilterGeneratorGUI extends JFrame {
         styleWarning = outputTextPane.addStyle("Warning", styleDefault);
         StyleConstants.setForeground(styleWarning, COLOR_WARNING);
         StyleConstants.setBold(styleWarning, true);
+
+        testResultsPane.addStyle("Default", styleDefault);
+        styleHighlight = testResultsPane.addStyle("Highlight", styleDefault);
+        StyleConstants.setBackground(styleHighlight, COLOR_HIGHLIGHT);
+        StyleConstants.setBold(styleHighlight, true);
     }
     
     private void toggleLanguage() {
@@ -225,7 +394,21 @@ public class FilterGeneratorGUI extends JFrame {
             outputBorder.setTitle("Salida (Vista previa en Vivo)");
             enableGenderVariantsCheckbox.setText("Variante de genero: puto = +puta");
             enableTitlesCheckbox.setText("Mostrar títulos (#palabra) sobre cada filtro");
+            enableOptimizerCheckbox.setText("Optimizar regex (posesivos, clases)");
+            dropRedundantCheckbox.setText("Quitar filtros redundantes");
+            foldSuffixesCheckbox.setText("Agrupar terminaciones (-a, -os, -ito) en un filtro");
+            colorCodesCheckbox.setText("Códigos de color (&c, §x...) como separador");
+            stripColorsCheckbox.setText("Quitar colores antes de filtrar");
             saveFilesButton.setText("Guardar Archivos");
+            testerBorder.setTitle("Probador (un mensaje por línea)");
+            loadLogButton.setText("Cargar registro...");
+            runTestButton.setText("Probar filtros");
+            profileButton.setText("Perfil de pasos");
+            addWordButton.setText("Añadir");
+            replaceWordButton.setText("Cambiar");
+            deleteWordButton.setText("Eliminar");
+            analyzeButton.setText("Analizar Backtracking");
+            checkBeforeSaveCheckbox.setText("Revisar backtracking al guardar");
             languageButton.setText("English");
         } else {
             setTitle("Filter Generator (Strong/Normal + Live Preview)");
@@ -236,7 +419,21 @@ public class FilterGeneratorGUI extends JFrame {
             outputBorder.setTitle("Output (Live Preview)");
             enableGenderVariantsCheckbox.setText("Enable Gender Variants (Only Spanish)");
             enableTitlesCheckbox.setText("Show Titles (#word) Above Each Filter");
+            enableOptimizerCheckbox.setText("Optimize Regex (possessive, classes)");
+            dropRedundantCheckbox.setText("Drop Redundant Filters");
+            foldSuffixesCheckbox.setText("Fold Endings (-a, -os, -ito) Into One Filter");
+            colorCodesCheckbox.setText("Color Codes (&c, §x...) As Separators");
+            stripColorsCheckbox.setText("Strip Colors Before Filtering");
             saveFilesButton.setText("Save Files");
+            testerBorder.setTitle("Tester (one message per line)");
+            loadLogButton.setText("Load chat log...");
+            runTestButton.setText("Run test");
+            profileButton.setText("Step profile");
+            addWordButton.setText("Add");
+            replaceWordButton.setText("Replace");
+            deleteWordButton.setText("Delete");
+            analyzeButton.setText("Analyze Backtracking");
+            checkBeforeSaveCheckbox.setText("Check Backtracking Before Saving");
             languageButton.setText("Español");
         }
 
@@ -248,9 +445,15 @@ public class FilterGeneratorGUI extends JFrame {
         outputBorder.setTitleFont(descriptionFont);
         outputBorder.setTitleColor(descriptionColor);
         outputBorder.setTitleJustification(TitledBorder.CENTER);
+        testerBorder.setTitleFont(descriptionFont);
+        testerBorder.setTitleColor(descriptionColor);
+        testerBorder.setTitleJustification(TitledBorder.CENTER);
 
         updateQuoteButtonText();
         updateIndentButtonText();
+        updateCombinedButtonText();
+        updateSeparatorsButtonText();
+        updateInputTitle();
 
         inputPanel.repaint();
         outputPanel.repaint();
@@ -268,7 +471,7 @@ public class FilterGeneratorGUI extends JFrame {
     
     private void promptToSaveAndExit() {
         if (!isDirty) {
-            System.exit(0);
+            exit();
             return;
         }
 
@@ -293,12 +496,22 @@ public class FilterGeneratorGUI extends JFrame {
         );
 
         switch (choice) {
-            case 0: saveFiles(); System.exit(0); break;
-            case 1: System.exit(0); break;
+            case 0: saveFiles(this::exit); break;
+            case 1: exit(); break;
             case 2: default: break;
         }
     }
 
+    // Patterns generated in this session are kept for the next start; a failed write only costs that start time.
+    private void exit() {
+        try {
+            regexCache.save(Paths.get(RegexCache.FILE));
+        } catch (IOException e) {
+            System.err.println("Could not write " + RegexCache.FILE + ": " + e.getMessage());
+        }
+        System.exit(0);
+    }
+
     private void setupSaveShortcut() {
         JRootPane rootPane = getRootPane();
         int shortcutKeyMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
@@ -317,6 +530,7 @@ public class FilterGeneratorGUI extends JFrame {
     }
     
     private void clearOutput() {
+        previewLines = null;
         try {
             outputDoc.remove(0, outputDoc.getLength());
         } catch (Exception e) {}
@@ -342,6 +556,42 @@ public class FilterGeneratorGUI extends JFrame {
         isDirty = true;
     }
 
+    private void cycleCombinedMode() {
+        int next = 0;
+        for (int i = 0; i < COMBINED_PATTERN_COUNTS.length; i++) {
+            if (COMBINED_PATTERN_COUNTS[i] == combinedPatternCount) {
+                next = COMBINED_PATTERN_COUNTS[(i + 1) % COMBINED_PATTERN_COUNTS.length];
+                break;
+            }
+        }
+        combinedPatternCount = next;
+        updateCombinedButtonText();
+        updateOutputPreview();
+        isDirty = true;
+    }
+
+    private void cycleSeparatorLimit() {
+        int next = SEPARATOR_LIMITS[0];
+        for (int i = 0; i < SEPARATOR_LIMITS.length; i++) {
+            if (SEPARATOR_LIMITS[i] == separatorLimit) {
+                next = SEPARATOR_LIMITS[(i + 1) % SEPARATOR_LIMITS.length];
+                break;
+            }
+        }
+        separatorLimit = next;
+        updateSeparatorsButtonText();
+        updateOutputPreview();
+        isDirty = true;
+    }
+
+    private Separators separators() {
+        boolean colorCodes = colorCodesCheckbox.isSelected();
+        if (separatorLimit == Separators.UNBOUNDED) {
+            return colorCodes ? new Separators(Separators.UNBOUNDED, Separators.UNBOUNDED, true) : Separators.UNLIMITED;
+        }
+        return new Separators(separatorLimit, separatorLimit * 2, colorCodes);
+    }
+
     private void updateQuoteButtonText() {
         if (useQuotes) {
             String text = (currentLanguage == Language.SPANISH) ? "Modo: '...' (Prefijo)" : "Mode: '...' (Prefix)";
@@ -358,19 +608,97 @@ public class FilterGeneratorGUI extends JFrame {
         indentButton.setText(text + indentationLevel + spaces);
     }
 
+    private void updateCombinedButtonText() {
+        if (combinedPatternCount == 0) {
+            combinedButton.setText((currentLanguage == Language.SPANISH) ? "Combinar: No" : "Combine: Off");
+        } else {
+            String text = (currentLanguage == Language.SPANISH) ? "Combinar: " : "Combine: ";
+            String patterns = (currentLanguage == Language.SPANISH) ? " patrón(es)" : " pattern(s)";
+            combinedButton.setText(text + combinedPatternCount + patterns);
+        }
+    }
+
+    private void updateSeparatorsButtonText() {
+        if (separatorLimit == Separators.UNBOUNDED) {
+            separatorsButton.setText((currentLanguage == Language.SPANISH) ? "Separadores: sin límite" : "Separators: Unlimited");
+        } else {
+            String text = (currentLanguage == Language.SPANISH) ? "Separadores: " : "Separators: ";
+            String phrases = (currentLanguage == Language.SPANISH) ? " (frases: " : " (phrases: ";
+            separatorsButton.setText(text + separatorLimit + phrases + separatorLimit * 2 + ")");
+        }
+    }
+
+    // Bursts of keystrokes restart the timer, so the preview is rebuilt once typing pauses.
     private void updateLive() {
         if (!isUpdatingFromLoad) {
-            SwingUtilities.invokeLater(() -> {
-                isDirty = true;
-                updateOutputPreview();
-            });
+            isDirty = true;
+            previewTimer.restart();
         }
     }
     
+    // confusables.txt is read once at startup; a broken file falls back to the built-in table.
+    private void loadConfusables() {
+        try {
+            confusables = Confusables.loadDefault();
+        } catch (IOException e) {
+            String message = currentLanguage == Language.SPANISH
+                    ? "No se pudo leer " + Confusables.FILE + ", se usa la tabla integrada:\n" + e.getMessage()
+                    : "Could not read " + Confusables.FILE + ", using the built-in table:\n" + e.getMessage();
+            JOptionPane.showMessageDialog(this, message, Confusables.FILE, JOptionPane.WARNING_MESSAGE);
+        }
+        safetyAnalyzer = new FilterSafetyAnalyzer(FilterSafetyAnalyzer.DEFAULT_MAX_STEPS,
+                FilterSafetyAnalyzer.DEFAULT_SEARCH_STEPS, confusables);
+    }
+
+    // Like the gender option, folding uses the Spanish rules ([es] in suffixes.txt).
+    private void loadSuffixRules() {
+        try {
+            suffixRules = SuffixRules.loadDefault(SUFFIX_LANGUAGE);
+        } catch (IOException e) {
+            String message = currentLanguage == Language.SPANISH
+                    ? "No se pudo leer " + SuffixRules.FILE + ", se usan las reglas integradas:\n" + e.getMessage()
+                    : "Could not read " + SuffixRules.FILE + ", using the built-in rules:\n" + e.getMessage();
+            JOptionPane.showMessageDialog(this, message, SuffixRules.FILE, JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    // A damaged cache file is only a slower start: it is ignored and rewritten on exit.
+    private void loadRegexCache() {
+        try {
+            regexCache = RegexCache.load(Paths.get(RegexCache.FILE));
+        } catch (IOException e) {
+            System.err.println("Ignoring " + RegexCache.FILE + ": " + e.getMessage());
+        }
+    }
+
+    // allowlist.txt is optional; without it no exceptions are written.
+    private void loadAllowlist() {
+        try {
+            allowlist = Allowlist.loadDefault();
+        } catch (IOException e) {
+            String message = currentLanguage == Language.SPANISH
+                    ? "No se pudo leer " + Allowlist.FILE + ", no se aplican excepciones:\n" + e.getMessage()
+                    : "Could not read " + Allowlist.FILE + ", no exceptions are applied:\n" + e.getMessage();
+            JOptionPane.showMessageDialog(this, message, Allowlist.FILE, JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
     private void loadExistingWords() {
         File inputFile = new File(INPUT_FILE);
         clearOutput();
         if (inputFile.exists()) {
+            try {
+                WordListFile file = WordListFile.open(inputFile.toPath());
+                if (file.size() >= LARGE_LIST_LINES) {
+                    showLargeList(file);
+                    isDirty = false;
+                    return;
+                }
+                file.close();
+            } catch (IOException e) {
+                appendToOutput("Error loading words: " + e.getMessage() + "\n", styleWarning);
+                return;
+            }
             try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), StandardCharsets.UTF_8))) {
                 isUpdatingFromLoad = true;
                 StringBuilder sb = new StringBuilder();
@@ -391,6 +719,72 @@ public class FilterGeneratorGUI extends JFrame {
         }
     }
     
+    // Switches the input panel to the list editor; lines stay on disk and are read as rows are painted.
+    private void showLargeList(WordListFile file) {
+        if (wordListModel != null) {
+            try {
+                wordListModel.file().close();
+            } catch (IOException e) {}
+        }
+        wordListModel = new WordListModel(file);
+        wordsList.setModel(wordListModel);
+        wordsCards.show(wordsCardPanel, "list");
+        updateInputTitle();
+    }
+
+    private void updateInputTitle() {
+        if (wordListModel == null) return;
+        String text = (currentLanguage == Language.SPANISH) ? "Lista grande: " + wordListModel.getSize() + " palabras"
+                : "Large list: " + wordListModel.getSize() + " words";
+        inputBorder.setTitle(text);
+        inputPanel.repaint();
+    }
+
+    private void addWord() {
+        String word = wordEditField.getText();
+        if (word.trim().isEmpty()) return;
+        int index = wordsList.getSelectedIndex() + 1;
+        if (index == 0) index = wordListModel.getSize();
+        wordListModel.insert(index, word);
+        wordsList.setSelectedIndex(index);
+        wordsList.ensureIndexIsVisible(index);
+        wordListEdited();
+    }
+
+    private void replaceSelectedWord() {
+        int index = wordsList.getSelectedIndex();
+        if (index < 0) return;
+        wordListModel.set(index, wordEditField.getText());
+        wordListEdited();
+    }
+
+    private void deleteSelectedWord() {
+        int index = wordsList.getSelectedIndex();
+        if (index < 0) return;
+        wordListModel.remove(index);
+        if (index < wordListModel.getSize()) wordsList.setSelectedIndex(index);
+        wordListEdited();
+    }
+
+    private void wordListEdited() {
+        updateInputTitle();
+        updateLive();
+    }
+
+    private void setLargeListEditable(boolean editable) {
+        wordsList.setEnabled(editable);
+        wordEditField.setEnabled(editable);
+        addWordButton.setEnabled(editable);
+        replaceWordButton.setEnabled(editable);
+        deleteWordButton.setEnabled(editable);
+        saveFilesButton.setEnabled(editable);
+    }
+
+    private Iterable<String> wordLines() {
+        if (wordListModel != null) return wordListModel.lines();
+        return Arrays.asList(wordsTextArea.getText().split("\n"));
+    }
+
     private void createSampleWordsFile() {
         try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(INPUT_FILE), StandardCharsets.UTF_8))) {
             bw.write("sex\n");
@@ -402,203 +796,657 @@ public class FilterGeneratorGUI extends JFrame {
         }
     }
     
+    // Generation runs on a worker thread; a newer edit cancels the running one and only the latest result is shown.
     private void updateOutputPreview() {
-        clearOutput();
-        java.util.List<String> filters = getFiltersList();
-        
-        if (filters.isEmpty() && wordsTextArea.getText().trim().isEmpty()) {
-             String warningMsg = (currentLanguage == Language.SPANISH ? "⚠️ No hay palabras para procesar." : "⚠️ No words to process.");
-             appendToOutput(warningMsg, styleWarning);
+        previewTimer.stop();
+        if (previewWorker != null) {
+            previewWorker.cancel(true);
+        }
+
+        // Large lists preview their first rows only; the full list is generated on save.
+        java.util.List<String> words = new ArrayList<>();
+        boolean empty;
+        String limitNote = null;
+        if (wordListModel != null) {
+            wordListModel.head(LARGE_PREVIEW_WORDS).forEach(words::add);
+            empty = wordListModel.getSize() == 0;
+            if (wordListModel.getSize() > LARGE_PREVIEW_WORDS) {
+                limitNote = (currentLanguage == Language.SPANISH)
+                        ? "# ... vista previa limitada a las primeras " + LARGE_PREVIEW_WORDS + " de " + wordListModel.getSize() + " palabras"
+                        : "# ... preview limited to the first " + LARGE_PREVIEW_WORDS + " of " + wordListModel.getSize() + " words";
+            }
         } else {
-            for (String line : filters) {
-                if (line.trim().startsWith("#")) {
-                    appendToOutput(line + "\n", styleComment);
+            words.addAll(Arrays.asList(wordsTextArea.getText().split("\n")));
+            empty = wordsTextArea.getText().trim().isEmpty();
+        }
+        String note = limitNote;
+        FilterGenerator generator = newGenerator();
+        boolean dropped = dropRedundantCheckbox.isSelected();
+        LivePreview previous = livePreview;
+        previewWorker = new SwingWorker<PreviewUpdate, Void>() {
+            @Override
+            protected PreviewUpdate doInBackground() {
+                // Line by line, only the lines that changed since the last preview are generated again; folding,
+                // dropping redundant filters and combining depend on the whole list, which is generated again.
+                LivePreview state = null;
+                java.util.List<LivePreview.Filter> filters;
+                SubsumptionAnalyzer.Result redundancy;
+                if (generator.isLineLocal()) {
+                    state = LivePreview.update(previous, generator.describeOptions(), words, generator, this::isCancelled);
+                    filters = state.filters;
+                    redundancy = state.redundancy;
                 } else {
-                    appendToOutput(line + "\n", styleDefault);
+                    java.util.List<LivePreview.Filter> all = new ArrayList<>();
+                    generator.forEachFilter(words, filter -> {
+                        if (isCancelled()) throw new CancellationException();
+                        all.add(new LivePreview.Filter(null, filter, generator));
+                    });
+                    filters = all;
+                    redundancy = SubsumptionAnalyzer.analyze(words, generator.isGenderVariants(),
+                            generator.getConfusables(), generator.getSuffixRules());
                 }
+
+                java.util.List<String> lines = new ArrayList<>();
+                for (LivePreview.Filter f : filters) lines.addAll(f.yaml);
+                if (!filters.isEmpty()) generator.appendSections(lines::add);
+                appendExceptions(lines, generator.getAllowlist(), filters);
+                appendRedundancy(lines, redundancy, dropped);
+                if (note != null) lines.add(note);
+                return new PreviewUpdate(lines, state);
             }
-        }
-    }
-    
-    private java.util.List<String> getFiltersList() {
-        String[] lines = wordsTextArea.getText().split("\n");
-        java.util.List<String> raw = new ArrayList<>();
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (!line.isEmpty() && !line.startsWith("#")) {
-                raw.add(line);
+
+            @Override
+            protected void done() {
+                if (isCancelled() || previewWorker != this) return;
+                try {
+                    PreviewUpdate update = get();
+                    livePreview = update.state;
+                    java.util.List<String> filters = update.lines;
+                    if (filters.isEmpty() && empty) {
+                        String warningMsg = (currentLanguage == Language.SPANISH ? "⚠️ No hay palabras para procesar." : "⚠️ No words to process.");
+                        clearOutput();
+                        appendToOutput(warningMsg, styleWarning);
+                    } else {
+                        applyPreview(filters);
+                    }
+                    logStartup(filters.size());
+                } catch (InterruptedException | ExecutionException e) {
+                    clearOutput();
+                    appendToOutput("Error: " + e.getMessage() + "\n", styleWarning);
+                }
             }
+        };
+        previewWorker.execute();
+    }
+
+    // Redundant filters are listed under the preview, whether they were dropped or are only marked.
+    private void appendRedundancy(java.util.List<String> lines, SubsumptionAnalyzer.Result result, boolean dropped) {
+        if (result.redundant.isEmpty()) return;
+        boolean spanish = currentLanguage == Language.SPANISH;
+        int count = result.redundant.size();
+        if (dropped) {
+            lines.add(spanish ? "# " + count + " filtros redundantes quitados:" : "# " + count + " redundant filters dropped:");
+        } else {
+            lines.add(spanish ? "# " + count + " filtros redundantes (activa \"Quitar filtros redundantes\"):"
+                    : "# " + count + " redundant filters (enable \"Drop Redundant Filters\"):");
         }
-        
-        if (raw.isEmpty()) {
-            return new ArrayList<>();
+        for (SubsumptionAnalyzer.Redundancy r : result.redundant) {
+            String reason = r.reason.description;
+            if (spanish) {
+                switch (r.reason) {
+                    case DUPLICATE: reason = "duplicado de"; break;
+                    case EQUIVALENT: reason = "mismas clases de letras que"; break;
+                    default: reason = "contenido en"; break;
+                }
+            }
+            lines.add("#   " + r.entry + ": " + reason + " " + r.keptEntry);
         }
-        
-        boolean enableGenderVariants = enableGenderVariantsCheckbox.isSelected();
-        boolean enableTitles = enableTitlesCheckbox.isSelected();
-        String indent = " ".repeat(indentationLevel);
+    }
 
-        java.util.List<String> words = enableGenderVariants ? addGenderVariantsPreserveBang(raw) : raw;
-        java.util.List<String> entries = new ArrayList<>();
-        
-        for (String r : words) {
-            boolean isStrong = r.startsWith("!");
-            String clean = isStrong ? r.substring(1) : r;
-            clean = clean.toLowerCase(Locale.ROOT);
-            
-            if (clean.isEmpty()) continue;
-            
-            String rawRegex = isStrong ? generateStrongRegex(clean) : generateNormalRegex(clean);
-            
-            if (isStrong) {
-                rawRegex += STRONG_FINAL_REGEX_SEP;
-            }
-
-            if (enableTitles) {
-                entries.add(indent + "# " + clean);
-            }
-            
-            String finalLine;
-            if (useQuotes) {
-                finalLine = indent + "'" + rawRegex + COMMON_YAML_SUFFIX + "'";
+    // An exception affects the filters that find a match inside the allowed word itself.
+    private void appendExceptions(java.util.List<String> lines, Allowlist allowlist, java.util.List<LivePreview.Filter> filters) {
+        if (allowlist.isEmpty() || filters.isEmpty()) return;
+        boolean spanish = currentLanguage == Language.SPANISH;
+        lines.add(spanish ? "# " + allowlist.words().size() + " excepciones (" + Allowlist.FILE + "):"
+                : "# " + allowlist.words().size() + " exceptions (" + Allowlist.FILE + "):");
+        for (String word : allowlist.words()) {
+            java.util.List<String> affected = new ArrayList<>();
+            for (LivePreview.Filter f : filters) {
+                if (f.allowed.contains(word)) affected.add(f.filter.title);
+            }
+            if (affected.isEmpty()) {
+                lines.add("#   " + word + (spanish ? ": no afecta a ningún filtro" : ": affects no filter"));
             } else {
-                finalLine = indent + "- " + rawRegex + COMMON_YAML_SUFFIX;
+                lines.add("#   " + word + (spanish ? " permite: " : " allows: ") + String.join(", ", affected));
             }
-            
-            entries.add(finalLine);
         }
-        
-        return entries;
     }
 
-    private void saveFiles() {
-        clearOutput();
-        
-        String savingMsg = (currentLanguage == Language.SPANISH) ? "Guardando archivos..." : "Saving files...";
-        appendToOutput(savingMsg + "\n", styleDefault);
-        
-        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(INPUT_FILE), StandardCharsets.UTF_8))) {
-            writer.write(wordsTextArea.getText());
-            String savedWordsMsg = (currentLanguage == Language.SPANISH) ? "Palabras guardadas en " : "Input words saved to ";
-            appendToOutput(savedWordsMsg + INPUT_FILE + "\n", styleDefault);
-        } catch (IOException e) {
-            String errorMsg = (currentLanguage == Language.SPANISH) ? "Error guardando palabras en " : "Error saving words to ";
-            appendToOutput(errorMsg + INPUT_FILE + ": " + e.getMessage() + "\n", styleWarning);
-            return;
-        }
-        
-        java.util.List<String> entries = getFiltersList();
-        if (entries.isEmpty()) {
-            String noWordsMsg = (currentLanguage == Language.SPANISH) ? "⚠️ No se encontraron palabras. No se guardó nada en " : "⚠️ No words found. Nothing saved to ";
-            appendToOutput(noWordsMsg + OUTPUT_FILE + "\n", styleWarning);
-            isDirty = false;
+    // Only the lines between the unchanged head and tail are replaced in the document, in one batched insert.
+    private void applyPreview(java.util.List<String> lines) {
+        if (previewLines == null) {
+            clearOutput();
+            try {
+                outputDoc.insertLines(0, lines, this::previewStyle);
+                previewLines = lines;
+            } catch (BadLocationException e) {
+                appendToOutput("Error: " + e.getMessage() + "\n", styleWarning);
+            }
             return;
         }
 
+        int common = Math.min(previewLines.size(), lines.size());
+        int head = 0;
+        while (head < common && previewLines.get(head).equals(lines.get(head))) head++;
+        int tail = 0;
+        while (tail < common - head
+                && previewLines.get(previewLines.size() - 1 - tail).equals(lines.get(lines.size() - 1 - tail))) tail++;
+
+        int start = 0;
+        for (int i = 0; i < head; i++) start += previewLines.get(i).length() + 1;
+        int removed = 0;
+        for (int i = head; i < previewLines.size() - tail; i++) removed += previewLines.get(i).length() + 1;
+
         try {
-            writeFile(OUTPUT_FILE, "filters:", entries);
-            String successMsg = (currentLanguage == Language.SPANISH) ? "\n¡Guardado exitoso en " : "\nSuccessfully saved to ";
-            appendToOutput(successMsg + INPUT_FILE + " y " + OUTPUT_FILE + "\n", styleDefault);
-            isDirty = false;
-        } catch (IOException e) {
-            String errorMsg = (currentLanguage == Language.SPANISH) ? "Error escribiendo en el archivo de salida: " : "Error writing to output file: ";
-            appendToOutput(errorMsg + e.getMessage() + "\n", styleWarning);
+            if (removed > 0) outputDoc.remove(start, removed);
+            outputDoc.insertLines(start, lines.subList(head, lines.size() - tail), this::previewStyle);
+            previewLines = lines;
+        } catch (BadLocationException e) {
+            previewLines = null;
+            applyPreview(lines);
         }
     }
-    
-    private static java.util.List<String> addGenderVariantsPreserveBang(java.util.List<String> input) {
-        LinkedHashSet<String> set = new LinkedHashSet<>();
-        for (String s : input) {
-            if (s.startsWith("!")) {
-                String core = s.substring(1);
-                set.add("!" + core);
-                if (core.endsWith("o")) set.add("!" + core.substring(0, core.length()-1) + "a");
-            } else {
-                set.add(s);
-                if (s.endsWith("o")) set.add(s.substring(0, s.length()-1) + "a");
+
+    private Style previewStyle(String line) {
+        return line.trim().startsWith("#") ? styleComment : styleDefault;
+    }
+
+    // Startup log (stdout): time from launch to the first preview, and how much of it the regex cache saved.
+    private void logStartup(int lines) {
+        if (startupLogged) return;
+        startupLogged = true;
+        int words = wordListModel != null ? wordListModel.getSize() : wordsTextArea.getLineCount();
+        System.out.printf(Locale.ROOT, "Startup: %d words, first preview (%d lines) in %.1f ms; regex cache: %d loaded, %d hits, %d generated%n",
+                words, lines, (System.nanoTime() - startNanos) / 1e6, regexCache.loaded(), regexCache.hits(), regexCache.generated());
+    }
+
+    private java.util.List<String> getFiltersList() {
+        return newGenerator().getFiltersList(Arrays.asList(wordsTextArea.getText().split("\n")));
+    }
+
+    private FilterGenerator newGenerator() {
+        return options().newGenerator().setRegexCache(regexCache);
+    }
+
+    // Read on the EDT; the snapshot is then safe to hand to a worker thread.
+    private FilterOptions options() {
+        return FilterOptions.builder()
+                .useQuotes(useQuotes)
+                .indentationLevel(indentationLevel)
+                .genderVariants(enableGenderVariantsCheckbox.isSelected())
+                .titles(enableTitlesCheckbox.isSelected())
+                .combinedPatternCount(combinedPatternCount)
+                .confusables(confusables)
+                .dropRedundant(dropRedundantCheckbox.isSelected())
+                .suffixRules(foldSuffixesCheckbox.isSelected() ? suffixRules : null)
+                .separators(separators())
+                .allowlist(allowlist)
+                .stripColors(stripColorsCheckbox.isSelected())
+                .optimizerPasses(enableOptimizerCheckbox.isSelected() ? RegexOptimizer.ALL : java.util.Set.of())
+                .build();
+    }
+
+    private java.util.List<FilterGenerator.GeneratedFilter> getGeneratedFilters() {
+        return generatedFilters(newGenerator(), wordLines());
+    }
+
+    private static java.util.List<FilterGenerator.GeneratedFilter> generatedFilters(FilterGenerator generator, Iterable<String> lines) {
+        java.util.List<FilterGenerator.GeneratedFilter> filters = new ArrayList<>();
+        generator.forEachFilter(lines, filters::add);
+        return filters;
+    }
+
+    // Generation and the analysis run on a worker; a large list stays read-only until the report is shown.
+    private void showSafetyAnalysis() {
+        clearOutput();
+        boolean spanish = currentLanguage == Language.SPANISH;
+        appendToOutput((spanish ? "Analizando backtracking..." : "Analyzing backtracking...") + "\n", styleDefault);
+        analyzeButton.setEnabled(false);
+        if (wordListModel != null) setLargeListEditable(false);
+
+        FilterGenerator generator = newGenerator();
+        Iterable<String> lines = wordLines();
+        new SwingWorker<java.util.List<FilterSafetyAnalyzer.Report>, Void>() {
+            @Override
+            protected java.util.List<FilterSafetyAnalyzer.Report> doInBackground() {
+                return safetyAnalyzer.analyzeAll(generatedFilters(generator, lines));
+            }
+
+            @Override
+            protected void done() {
+                analyzeButton.setEnabled(true);
+                if (wordListModel != null) setLargeListEditable(true);
+                clearOutput();
+                try {
+                    java.util.List<FilterSafetyAnalyzer.Report> reports = get();
+                    if (reports.isEmpty()) {
+                        appendToOutput((spanish ? "⚠️ No hay palabras para procesar." : "⚠️ No words to process."), styleWarning);
+                        return;
+                    }
+                    appendSafetyReport(reports, false);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    appendToOutput("Error: " + cause.getMessage() + "\n", styleWarning);
+                }
+            }
+        }.execute();
+    }
+
+    // Returns how many filters exceed the step limit.
+    private int appendSafetyReport(java.util.List<FilterSafetyAnalyzer.Report> reports, boolean onlyExceeded) {
+        int exceeded = 0;
+        String steps = (currentLanguage == Language.SPANISH) ? " pasos (peor entrada: " : " steps (worst input: ";
+        for (FilterSafetyAnalyzer.Report r : reports) {
+            if (r.exceeded) exceeded++;
+            if (onlyExceeded && !r.exceeded) continue;
+
+            String input = r.worstInput.length() > 32 ? r.worstInput.substring(0, 32) + "..." : r.worstInput;
+            String count = r.exceeded ? "> " + safetyAnalyzer.maxSteps() : Long.toString(r.worstSteps);
+            appendToOutput("# " + r.filter.title + ": " + count + steps + input + ")\n", r.exceeded ? styleWarning : styleComment);
+            for (String w : r.warnings) {
+                appendToOutput("#   " + w + "\n", styleComment);
             }
         }
-        return new ArrayList<>(set);
+        return exceeded;
     }
 
-    private static String generateNormalRegex(String word) {
-        char[] chars = word.toCharArray();
-        if (chars.length == 0) return "";
+    private void loadTestLog() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            testMessagesArea.setText(new String(Files.readAllBytes(chooser.getSelectedFile().toPath()), StandardCharsets.UTF_8));
+            testMessagesArea.setCaretPosition(0);
+        } catch (IOException e) {
+            setTestResults("Error loading " + chooser.getSelectedFile() + ": " + e.getMessage() + "\n", styleWarning);
+        }
+    }
 
-        char firstChar = chars[0];
-        char lastChar = chars[chars.length - 1];
-        String firstVariantGroup = VARIANTS.getOrDefault(firstChar, Pattern.quote(Character.toString(firstChar)));
-        String lastVariantGroup = VARIANTS.getOrDefault(lastChar, Pattern.quote(Character.toString(lastChar)));
-        
-        String precheck = "";
-        if (chars.length > 1) {
-            precheck = "(?=.*[" + firstVariantGroup + "].*[" + lastVariantGroup + "])";
+    private java.util.List<String> testMessages() {
+        java.util.List<String> messages = new ArrayList<>();
+        for (String line : testMessagesArea.getText().split("\n")) {
+            if (!line.trim().isEmpty()) messages.add(line);
         }
+        return messages;
+    }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append(NORMAL_PREFIX_REGEX);
-        if (chars.length > 1) {
-            sb.append(precheck); 
+    // A colored message is tested as written and, on the next line, the way the "strip:" section leaves it.
+    private static java.util.List<String> withStripped(java.util.List<String> messages) {
+        java.util.List<String> both = new ArrayList<>();
+        for (String m : messages) {
+            both.add(m);
+            String plain = FilterGenerator.COLOR_CODES.matcher(m).replaceAll("");
+            if (!plain.equals(m)) both.add(plain);
         }
-        sb.append(SEP);
-        
-        for (int i = 0; i < chars.length; i++) {
-            char c = chars[i];
-            String group = VARIANTS.getOrDefault(c, Pattern.quote(Character.toString(c)));
-            sb.append("[").append(group).append("]+");
-            sb.append(SEP);
+        return both;
+    }
+
+    private void runFilterTest() {
+        java.util.List<String> messages = stripColorsCheckbox.isSelected() ? withStripped(testMessages()) : testMessages();
+        java.util.List<FilterGenerator.GeneratedFilter> filters = getGeneratedFilters();
+        if (messages.isEmpty() || filters.isEmpty()) {
+            String msg = (currentLanguage == Language.SPANISH) ? "⚠️ Faltan mensajes o palabras." : "⚠️ Messages or words are missing.";
+            setTestResults(msg + "\n", styleWarning);
+            return;
         }
-        sb.append("?");
-        sb.append(NORMAL_SUFFIX_REGEX);
-        return sb.toString();
+
+        runTestButton.setEnabled(false);
+        new SwingWorker<FilterTester.Result, Void>() {
+            @Override
+            protected FilterTester.Result doInBackground() {
+                return filterTester.run(filters, messages, allowlist);
+            }
+
+            @Override
+            protected void done() {
+                runTestButton.setEnabled(true);
+                try {
+                    showTestResults(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    setTestResults("Error: " + e.getMessage() + "\n", styleWarning);
+                }
+            }
+        }.execute();
     }
 
-    private static String generateStrongRegex(String word) {
-        char[] chars = word.toCharArray();
-        if (chars.length == 0) return "";
-        
-        char firstChar = chars[0];
-        char lastChar = chars[chars.length - 1];
-        String firstVariantGroup = VARIANTS.getOrDefault(firstChar, Pattern.quote(Character.toString(firstChar)));
-        String lastVariantGroup = VARIANTS.getOrDefault(lastChar, Pattern.quote(Character.toString(lastChar)));
-        
-        String precheck = "";
-        if (chars.length > 1) {
-            precheck = "(?=.*[" + firstVariantGroup + "].*[" + lastVariantGroup + "])";
+    // Same messages as the tester, but counted in characters read instead of timed, and shown as a sortable table.
+    private void runProfiler() {
+        java.util.List<String> messages = testMessages();
+        java.util.List<FilterGenerator.GeneratedFilter> filters = getGeneratedFilters();
+        if (messages.isEmpty() || filters.isEmpty()) {
+            String msg = (currentLanguage == Language.SPANISH) ? "⚠️ Faltan mensajes o palabras." : "⚠️ Messages or words are missing.";
+            setTestResults(msg + "\n", styleWarning);
+            return;
         }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append(STRONG_PREFIX_REGEX);
-        if (chars.length > 1) {
-            sb.append(precheck); 
+        profileButton.setEnabled(false);
+        new SwingWorker<java.util.List<FilterProfiler.Profile>, Void>() {
+            @Override
+            protected java.util.List<FilterProfiler.Profile> doInBackground() {
+                return filterProfiler.profile(filters, messages);
+            }
+
+            @Override
+            protected void done() {
+                profileButton.setEnabled(true);
+                try {
+                    showProfile(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    setTestResults("Error: " + e.getMessage() + "\n", styleWarning);
+                }
+            }
+        }.execute();
+    }
+
+    private void showProfile(java.util.List<FilterProfiler.Profile> profiles) {
+        boolean spanish = currentLanguage == Language.SPANISH;
+        String[] columns = spanish
+                ? new String[]{"Filtro", "Pasos totales", "Prom. por mensaje", "Máx. por mensaje", "Bloq.", "Peor mensaje"}
+                : new String[]{"Filter", "Total steps", "Avg per message", "Max per message", "Hits", "Worst message"};
+        Class<?>[] types = {String.class, Long.class, Long.class, Long.class, Integer.class, String.class};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return types[column];
+            }
+
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (FilterProfiler.Profile p : profiles) {
+            model.addRow(new Object[]{p.filter.title, p.totalSteps, p.averageSteps(),
+                    p.maxSteps, p.matchedMessages, p.worstMessage});
         }
-        sb.append(STRONG_BODY_PREFIX);
-        
-        for (int i = 0; i < chars.length; i++) {
-            char c = chars[i];
-            String group = VARIANTS.getOrDefault(c, Pattern.quote(Character.toString(c)));
-            sb.append("[").append(group).append("]+");
-            if (i < chars.length - 1) {
-                sb.append(SEP);
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getRowSorter().setSortKeys(java.util.List.of(new RowSorter.SortKey(1, SortOrder.DESCENDING)));
+        table.getColumnModel().getColumn(5).setPreferredWidth(300);
+
+        JDialog dialog = new JDialog(this, spanish ? "Perfil de pasos (caracteres leídos por el motor regex)"
+                : "Step profile (characters read by the regex engine)", false);
+        dialog.add(new JScrollPane(table));
+        dialog.setSize(900, 500);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private void showTestResults(FilterTester.Result result) {
+        setTestResults("", styleDefault);
+        boolean spanish = currentLanguage == Language.SPANISH;
+        int blocked = 0;
+        for (int m = 0; m < result.messages.size(); m++) {
+            java.util.List<FilterTester.Match> matches = result.matches.get(m);
+            if (matches.isEmpty()) continue;
+            blocked++;
+
+            String message = result.messages.get(m);
+            boolean[] marked = new boolean[message.length()];
+            LinkedHashSet<String> titles = new LinkedHashSet<>();
+            for (FilterTester.Match match : matches) {
+                Arrays.fill(marked, match.start, match.end, true);
+                titles.add(result.stats.get(match.filter).filter.title);
+            }
+            for (int i = 0; i < message.length(); ) {
+                int j = i;
+                while (j < message.length() && marked[j] == marked[i]) j++;
+                appendTestResults(message.substring(i, j), marked[i] ? styleHighlight : styleDefault);
+                i = j;
             }
+            appendTestResults("  <- " + String.join(", ", titles) + "\n", styleComment);
         }
-        sb.append(STRONG_BODY_SUFFIX);
-        return sb.toString();
+        appendTestResults("\n# " + blocked + "/" + result.messages.size() + (spanish ? " mensajes bloqueados\n" : " messages blocked\n"), styleComment);
+        if (result.suppressed > 0) {
+            appendTestResults("# " + result.suppressed + (spanish ? " coincidencias permitidas por " : " matches allowed by ")
+                    + Allowlist.FILE + "\n", styleComment);
+        }
+
+        java.util.List<FilterTester.FilterStats> stats = new ArrayList<>(result.stats);
+        stats.sort(Comparator.comparingLong((FilterTester.FilterStats st) -> st.maxNanos).reversed());
+        appendTestResults(String.format(Locale.ROOT, "# %-24s %12s %12s %8s%n", spanish ? "filtro" : "filter",
+                spanish ? "prom. (µs)" : "avg (µs)", spanish ? "máx. (µs)" : "max (µs)", spanish ? "bloq." : "hits"), styleComment);
+        for (FilterTester.FilterStats st : stats) {
+            appendTestResults(String.format(Locale.ROOT, "  %-24s %12.1f %12.1f %8d%n", st.filter.title,
+                    st.averageNanos() / 1000.0, st.maxNanos / 1000.0, st.matchedMessages), styleDefault);
+        }
+        testResultsPane.setCaretPosition(0);
     }
-    
-    private static void writeFile(String filename, String header, java.util.List<String> entries) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8))) {
-            writer.write(header);
-            writer.newLine();
-            writer.newLine();
-            for (String e : entries) {
-                writer.write(e);
-                writer.newLine();
+
+    private void setTestResults(String msg, Style style) {
+        try {
+            testResultsDoc.remove(0, testResultsDoc.getLength());
+        } catch (Exception e) {}
+        appendTestResults(msg, style);
+    }
+
+    private void appendTestResults(String msg, Style style) {
+        try {
+            testResultsDoc.insertString(testResultsDoc.getLength(), msg, style);
+        } catch (Exception e) {}
+    }
+
+    private void saveFiles() {
+        saveFiles(() -> { });
+    }
+
+    private void saveFiles(Runnable afterSave) {
+        // A save is already running (Ctrl+S while the button is disabled).
+        if (!saveFilesButton.isEnabled()) return;
+        if (wordListModel != null) {
+            saveLargeList(afterSave);
+            return;
+        }
+        saveText(afterSave);
+    }
+
+    // Generation and the safety analysis run on a worker; afterSave (e.g. exit) only runs when the output was
+    // written or already up to date, so a refusal stays on screen. The analysis only runs when it is switched on
+    // (checkBeforeSaveCheckbox); switching it off is how a refused list is saved anyway.
+    private void saveText(Runnable afterSave) {
+        clearOutput();
+        boolean spanish = currentLanguage == Language.SPANISH;
+        appendToOutput((spanish ? "Guardando archivos..." : "Saving files...") + "\n", styleDefault);
+        saveFilesButton.setEnabled(false);
+
+        String text = wordsTextArea.getText();
+        FilterGenerator generator = newGenerator();
+        boolean check = checkBeforeSaveCheckbox.isSelected();
+        new SwingWorker<Boolean, Runnable>() {
+            @Override
+            protected Boolean doInBackground() {
+                try {
+                    IncrementalSaver.writeAtomically(Paths.get(INPUT_FILE), writer -> writer.write(text));
+                    publish(() -> appendToOutput((spanish ? "Palabras guardadas en " : "Input words saved to ") + INPUT_FILE + "\n", styleDefault));
+                } catch (IOException e) {
+                    String errorMsg = spanish ? "Error guardando palabras en " : "Error saving words to ";
+                    publish(() -> appendToOutput(errorMsg + INPUT_FILE + ": " + e.getMessage() + "\n", styleWarning));
+                    return false;
+                }
+
+                java.util.List<String> lines = Arrays.asList(text.split("\n"));
+                java.util.List<FilterGenerator.GeneratedFilter> filters = new ArrayList<>();
+                int[] unsafe = {0};
+                try {
+                    IncrementalSaver.Report report = outputSaver.save(IncrementalSaver.digest(lines, generator.describeOptions()),
+                            FilterGenerator.YAML_HEADER, sink -> generator.generate(lines, sink, check ? filters::add : filter -> { }), () -> {
+                                if (!check) return true;
+                                java.util.List<FilterSafetyAnalyzer.Report> reports = safetyAnalyzer.analyzeAll(filters);
+                                unsafe[0] = (int) reports.stream().filter(r -> r.exceeded).count();
+                                publish(() -> appendSafetyReport(reports, true));
+                                return unsafe[0] == 0;
+                            });
+                    publish(() -> appendSaveReport(report, unsafe[0]));
+                    return report.status != IncrementalSaver.Status.REFUSED;
+                } catch (IOException e) {
+                    String errorMsg = spanish ? "Error escribiendo en el archivo de salida: " : "Error writing to output file: ";
+                    publish(() -> appendToOutput(errorMsg + e.getMessage() + "\n", styleWarning));
+                    return false;
+                }
             }
+
+            @Override
+            protected void process(java.util.List<Runnable> updates) {
+                updates.forEach(Runnable::run);
+            }
+
+            @Override
+            protected void done() {
+                saveFilesButton.setEnabled(true);
+                try {
+                    if (!get()) return;
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    appendToOutput("Error: " + cause.getMessage() + "\n", styleWarning);
+                    return;
+                }
+                // Edits made while the worker ran are still unsaved.
+                if (wordsTextArea.getText().equals(text)) isDirty = false;
+                afterSave.run();
+            }
+        }.execute();
+    }
+
+    // Returns false when the output was refused, i.e. the editor still holds unsaved work.
+    private boolean appendSaveReport(IncrementalSaver.Report report, int unsafe) {
+        boolean spanish = currentLanguage == Language.SPANISH;
+        switch (report.status) {
+            case EMPTY:
+                String noWordsMsg = spanish ? "⚠️ No se encontraron palabras. No se guardó nada en " : "⚠️ No words found. Nothing saved to ";
+                appendToOutput(noWordsMsg + OUTPUT_FILE + "\n", styleWarning);
+                return true;
+            case REFUSED:
+                String refusedMsg = spanish
+                        ? "⚠️ No se guardó " + OUTPUT_FILE + ": " + unsafe + " filtro(s) superan el límite de backtracking."
+                                + " Desmarca \"Revisar backtracking al guardar\" para guardarlo igualmente.\n"
+                        : "⚠️ " + OUTPUT_FILE + " not saved: " + unsafe + " filter(s) exceed the backtracking limit."
+                                + " Untick \"Check Backtracking Before Saving\" to save it anyway.\n";
+                appendToOutput(refusedMsg, styleWarning);
+                return false;
+            case SKIPPED:
+                appendToOutput(spanish ? "\nSin cambios: " + OUTPUT_FILE + " ya está al día (no se regeneró)\n"
+                        : "\nNo changes: " + OUTPUT_FILE + " is up to date (not regenerated)\n", styleDefault);
+                break;
+            case UNCHANGED:
+                appendToOutput(spanish ? "\nSin cambios: " + OUTPUT_FILE + " es idéntico byte a byte (no se reescribió)\n"
+                        : "\nNo changes: " + OUTPUT_FILE + " is byte-identical (not rewritten)\n", styleDefault);
+                break;
+            default:
+                String successMsg = spanish ? "\n¡Guardado exitoso en " : "\nSuccessfully saved to ";
+                appendToOutput(successMsg + INPUT_FILE + " y " + OUTPUT_FILE + "\n", styleDefault);
         }
+        appendToOutput(String.format(Locale.ROOT, spanish
+                        ? "# %d entradas, cambios: +%d / -%d, %d bytes escritos, %.1f ms%n"
+                        : "# %d entries, changed: +%d / -%d, %d bytes written, %.1f ms%n",
+                report.entries, report.added, report.removed, report.bytes, report.nanos / 1e6), styleComment);
+        return true;
     }
-    
+
+    // Large lists never become one String: words.txt and the YAML go through temporary files, and the safety
+    // analysis runs batch by batch while the YAML is written, so memory does not grow with the list.
+    private void saveLargeList(Runnable afterSave) {
+        clearOutput();
+        boolean spanish = currentLanguage == Language.SPANISH;
+        appendToOutput((spanish ? "Guardando archivos..." : "Saving files...") + "\n", styleDefault);
+        setLargeListEditable(false);
+
+        WordListModel model = wordListModel;
+        FilterGenerator generator = newGenerator();
+        boolean check = checkBeforeSaveCheckbox.isSelected();
+        new SwingWorker<WordListFile, Runnable>() {
+            private boolean saved;
+
+            @Override
+            protected WordListFile doInBackground() throws IOException {
+                WordListFile reloaded = null;
+                Path words = Paths.get(INPUT_FILE);
+                if (model.isEdited()) {
+                    IncrementalSaver.writeAtomically(words, writer -> {
+                        for (String line : model.lines()) {
+                            writer.write(line);
+                            writer.write("\n");
+                        }
+                    });
+                    reloaded = WordListFile.open(words);
+                }
+                publish(() -> appendToOutput((spanish ? "Palabras guardadas en " : "Input words saved to ") + INPUT_FILE + "\n", styleDefault));
+                try {
+                    saved = writeOutput(reloaded != null ? reloaded : model.lines());
+                } catch (IOException | RuntimeException e) {
+                    if (reloaded != null) reloaded.close();
+                    throw e;
+                }
+                return reloaded;
+            }
+
+            private boolean writeOutput(Iterable<String> lines) throws IOException {
+                java.util.List<FilterGenerator.GeneratedFilter> batch = new ArrayList<>();
+                int[] unsafe = {0};
+                IncrementalSaver.Report report = outputSaver.save(IncrementalSaver.digest(lines, generator.describeOptions()),
+                        FilterGenerator.YAML_HEADER, sink -> generator.generate(lines, sink, filter -> {
+                            if (!check) return;
+                            batch.add(filter);
+                            if (batch.size() == ANALYZE_BATCH) {
+                                unsafe[0] += analyzeBatch(batch);
+                                batch.clear();
+                            }
+                        }), () -> {
+                            if (!check) return true;
+                            unsafe[0] += analyzeBatch(batch);
+                            return unsafe[0] == 0;
+                        });
+                int refused = unsafe[0];
+                publish(() -> appendSaveReport(report, refused));
+                return report.status != IncrementalSaver.Status.REFUSED;
+            }
+
+            private int analyzeBatch(java.util.List<FilterGenerator.GeneratedFilter> filters) {
+                java.util.List<FilterSafetyAnalyzer.Report> reports = safetyAnalyzer.analyzeBatch(filters);
+                publish(() -> appendSafetyReport(reports, true));
+                return (int) reports.stream().filter(r -> r.exceeded).count();
+            }
+
+            @Override
+            protected void process(java.util.List<Runnable> updates) {
+                updates.forEach(Runnable::run);
+            }
+
+            @Override
+            protected void done() {
+                setLargeListEditable(true);
+                try {
+                    WordListFile reloaded = get();
+                    if (reloaded != null) {
+                        int selected = wordsList.getSelectedIndex();
+                        showLargeList(reloaded);
+                        if (selected >= 0 && selected < wordListModel.getSize()) {
+                            wordsList.setSelectedIndex(selected);
+                            wordsList.ensureIndexIsVisible(selected);
+                        }
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    String errorMsg = spanish ? "Error escribiendo en el archivo de salida: " : "Error writing to output file: ";
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    appendToOutput(errorMsg + cause.getMessage() + "\n", styleWarning);
+                    return;
+                }
+                if (!saved) return;
+                isDirty = false;
+                afterSave.run();
+            }
+        }.execute();
+    }
+
     public static void main(String[] args) {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -0,0 +1,624 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterMatcher
+// Regex-free engine: one normalization pass over the message, then one automaton step per character.
+// Note:
+// Every character is folded to a symbol (which Confusables groups accept it, is it a SEP character, a '§', a word
+// boundary), and runs of pure separators collapse to a single symbol with an offset map back to the message.
+// The words are merged into a trie (Aho-Corasick goto graph); because '[x]+' runs and characters such as '!' or '|'
+// can be a letter and a separator at once, the failure function is replaced by building the deterministic states
+// on demand. Each state is cached, so a message costs O(length) no matter how many words are loaded.
+// Matches are decided exactly like the generated patterns for single-line messages (the "Guardian" lookahead
+// only differs across line breaks).
+// Multi-character confusables ("ph" for 'f') get a chain of virtual nodes per sequence: a virtual RUN state means
+// "inside that sequence, expecting its next character"; completing it lands on the owner's RUN state.
+// With bounded Separators every gap state also counts the tokens read so far, and separator runs no longer
+// collapse (each one is a token). A space in a phrase marks the trie edge that takes the word gap limit.
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class FilterMatcher {
+    private static final int RUN = 0;
+    private static final int GAP = 1;
+    private static final int GAP_SECTION = 2;
+
+    private static final int STRONG_ROOT = 0;
+    private static final int NORMAL_ROOT = 1;
+    private static final int OTHER = 0;
+    private static final int MAX_CACHED_STATES = 20000;
+
+    public static final class Hit {
+        public final String word;
+        public final boolean strong;
+        public final int end;
+
+        Hit(String word, boolean strong, int end) {
+            this.word = word;
+            this.strong = strong;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return (strong ? "!" : "") + word + "@" + end;
+        }
+    }
+
+    static final class Normalized {
+        final int[] symbols;
+        final int[] offsets;
+        final int length;
+
+        Normalized(int[] symbols, int[] offsets, int length) {
+            this.symbols = symbols;
+            this.offsets = offsets;
+            this.length = length;
+        }
+    }
+
+    private static final class State {
+        final int[] nfa;
+        final State[] next;
+        final int[] strongHits;
+        final int[] pendingNormal;
+
+        State(int[] nfa, int symbolCount, int[] strongHits, int[] pendingNormal) {
+            this.nfa = nfa;
+            this.next = new State[symbolCount];
+            this.strongHits = strongHits;
+            this.pendingNormal = pendingNormal;
+        }
+    }
+
+    private static final class Key {
+        final int[] nfa;
+        final int hash;
+
+        Key(int[] nfa) {
+            this.nfa = nfa;
+            this.hash = Arrays.hashCode(nfa);
+        }
+
+        @Override public int hashCode() { return hash; }
+        @Override public boolean equals(Object o) { return o instanceof Key && Arrays.equals(nfa, ((Key) o).nfa); }
+    }
+
+    private final String[] words;
+    private final boolean[] wordStrong;
+
+    private final int[] nodeGroup;
+    private final int[][] nodeChildren;
+    private final int[][] nodeWords;
+    private final boolean[] nodeStrong;
+    private final int[][] nodeSequences;
+    private final int[] nodeAdvance;
+    private final boolean[] nodeWordGap;
+    private final int[] nodeGapLimit;
+
+    private final Separators separators;
+    private final int slots;
+    private final int maxCount;
+
+    private final char[] bmpSymbols;
+    private final BitSet[] symbolGroups;
+    private final boolean[] symbolSep;
+    private final boolean[] symbolBoundary;
+    private final boolean[] symbolSection;
+    private final boolean[] symbolLineTerminator;
+    private final boolean[] symbolCollapsible;
+
+    private final Map<Key, State> states = new HashMap<>();
+    private final State start;
+
+    private FilterMatcher(List<String> words, List<Boolean> strong, Confusables confusables, Separators separators) {
+        this.separators = separators;
+        this.words = words.toArray(new String[0]);
+        this.wordStrong = new boolean[words.size()];
+        for (int i = 0; i < wordStrong.length; i++) wordStrong[i] = strong.get(i);
+
+        // Letter groups are keyed "L<canonical>", single characters of sequences "S<char>".
+        Map<String, Integer> groupIds = new LinkedHashMap<>();
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> groups = new ArrayList<>();
+        List<List<Integer>> hits = new ArrayList<>();
+        List<Boolean> strongNodes = new ArrayList<>();
+        List<Boolean> wordGaps = new ArrayList<>();
+        StringBuilder letters = new StringBuilder();
+        for (int root = 0; root < 2; root++) {
+            children.add(new LinkedHashMap<>());
+            letters.append('\0');
+            groups.add(-1);
+            hits.add(new ArrayList<>());
+            strongNodes.add(root == STRONG_ROOT);
+            wordGaps.add(false);
+        }
+
+        // Children are keyed by group and by "a word gap comes first", so "ab" and "a b" are different edges.
+        for (int w = 0; w < this.words.length; w++) {
+            int node = wordStrong[w] ? STRONG_ROOT : NORMAL_ROOT;
+            boolean gap = false;
+            for (char c : this.words[w].toCharArray()) {
+                if (c == Separators.WORD_GAP) {
+                    gap = true;
+                    continue;
+                }
+                int groupId = groupIds.computeIfAbsent("L" + c, k -> groupIds.size());
+                int edge = groupId * 2 + (gap ? 1 : 0);
+                Integer child = children.get(node).get(edge);
+                if (child == null) {
+                    child = children.size();
+                    children.add(new LinkedHashMap<>());
+                    letters.append(c);
+                    groups.add(groupId);
+                    hits.add(new ArrayList<>());
+                    strongNodes.add(wordStrong[w]);
+                    wordGaps.add(gap);
+                    children.get(node).put(edge, child);
+                }
+                node = child;
+                gap = false;
+            }
+            hits.get(node).add(w);
+        }
+
+        // Virtual nodes for sequences: node v expects one character and then advances to v + 1, or back to the
+        // owner's RUN state after the last one. The first node of a chain is never a state, only its entry test.
+        int trieNodes = children.size();
+        List<int[]> sequenceHeads = new ArrayList<>();
+        List<Integer> advance = new ArrayList<>();
+        for (int n = 0; n < trieNodes; n++) {
+            advance.add(-1);
+            sequenceHeads.add(new int[0]);
+        }
+        for (int n = NORMAL_ROOT + 1; n < trieNodes; n++) {
+            String[] sequences = confusables.sequencesOf(letters.charAt(n));
+            int[] heads = new int[sequences.length];
+            for (int q = 0; q < sequences.length; q++) {
+                heads[q] = groups.size();
+                for (int k = 0; k < sequences[q].length(); k++) {
+                    boolean last = k == sequences[q].length() - 1;
+                    groups.add(groupIds.computeIfAbsent("S" + sequences[q].charAt(k), key -> groupIds.size()));
+                    advance.add(last ? n : groups.size());
+                    children.add(new LinkedHashMap<>());
+                    hits.add(new ArrayList<>());
+                    strongNodes.add(strongNodes.get(n));
+                    wordGaps.add(false);
+                    sequenceHeads.add(new int[0]);
+                }
+            }
+            sequenceHeads.set(n, heads);
+        }
+
+        int nodeCount = children.size();
+        nodeGroup = new int[nodeCount];
+        nodeChildren = new int[nodeCount][];
+        nodeWords = new int[nodeCount][];
+        nodeStrong = new boolean[nodeCount];
+        nodeSequences = sequenceHeads.toArray(new int[0][]);
+        nodeAdvance = new int[nodeCount];
+        nodeWordGap = new boolean[nodeCount];
+        for (int n = 0; n < nodeCount; n++) {
+            nodeGroup[n] = groups.get(n);
+            nodeChildren[n] = children.get(n).values().stream().mapToInt(Integer::intValue).toArray();
+            nodeWords[n] = hits.get(n).stream().mapToInt(Integer::intValue).toArray();
+            nodeStrong[n] = strongNodes.get(n);
+            nodeAdvance[n] = advance.get(n);
+            nodeWordGap[n] = wordGaps.get(n);
+        }
+
+        // Token counts saturate one above the largest finite limit when some limit is unbounded. A gap state is
+        // only kept while its count can still reach a child or the Normal end-of-word check.
+        int finite = 0;
+        for (int limit : new int[]{separators.letters, separators.words}) {
+            if (limit != Separators.UNBOUNDED) finite = Math.max(finite, limit);
+        }
+        boolean open = separators.letters == Separators.UNBOUNDED || separators.words == Separators.UNBOUNDED;
+        maxCount = !separators.bounded() ? 0 : open ? finite + 1 : finite;
+        slots = maxCount + 1;
+        nodeGapLimit = new int[nodeCount];
+        for (int n = 0; n < nodeCount; n++) {
+            int limit = n == NORMAL_ROOT || (!nodeStrong[n] && nodeWords[n].length > 0) ? separators.letters : 0;
+            for (int child : nodeChildren[n]) limit = widest(limit, separators.max(nodeWordGap[child]));
+            nodeGapLimit[n] = n == STRONG_ROOT ? 0 : limit;
+        }
+
+        // Characters with identical behaviour share a symbol; everything else (emoji, CJK, ...) is OTHER.
+        List<String> groupList = new ArrayList<>(groupIds.keySet());
+        BitSet candidates = new BitSet(65536);
+        candidates.set(0, 128);
+        candidates.set('§');
+        candidates.set(0x85);
+        candidates.set(0x2028);
+        candidates.set(0x2029);
+        for (String g : groupList) {
+            String members = g.charAt(0) == 'L' ? confusables.membersOf(g.charAt(1)) : g.substring(1);
+            for (char c : members.toCharArray()) {
+                candidates.set(c);
+                candidates.set(Character.toUpperCase(c));
+                candidates.set(Character.toLowerCase(c));
+            }
+        }
+
+        Map<String, Integer> signatures = new LinkedHashMap<>();
+        List<BitSet> symGroups = new ArrayList<>();
+        List<boolean[]> symFlags = new ArrayList<>();
+        signatures.put(signature(new BitSet(), false, true, false, false), OTHER);
+        symGroups.add(new BitSet());
+        symFlags.add(new boolean[]{false, true, false, false});
+
+        bmpSymbols = new char[65536];
+        for (int c = candidates.nextSetBit(0); c >= 0; c = candidates.nextSetBit(c + 1)) {
+            BitSet accepted = new BitSet();
+            for (int g = 0; g < groupList.size(); g++) {
+                String group = groupList.get(g);
+                boolean accepts = group.charAt(0) == 'L'
+                        ? confusables.accepts(group.charAt(1), (char) c)
+                        : groupAccepts(group.substring(1), (char) c);
+                if (accepts) accepted.set(g);
+            }
+            boolean sep = isSeparator(c);
+            boolean boundary = isBoundary(c);
+            boolean section = c == '§';
+            boolean lineTerminator = isLineTerminator(c);
+            String sig = signature(accepted, sep, boundary, section, lineTerminator);
+            Integer symbol = signatures.get(sig);
+            if (symbol == null) {
+                symbol = signatures.size();
+                signatures.put(sig, symbol);
+                symGroups.add(accepted);
+                symFlags.add(new boolean[]{sep, boundary, section, lineTerminator});
+            }
+            bmpSymbols[c] = (char) (int) symbol;
+        }
+
+        int symbolCount = symGroups.size();
+        symbolGroups = symGroups.toArray(new BitSet[0]);
+        symbolSep = new boolean[symbolCount];
+        symbolBoundary = new boolean[symbolCount];
+        symbolSection = new boolean[symbolCount];
+        symbolLineTerminator = new boolean[symbolCount];
+        symbolCollapsible = new boolean[symbolCount];
+        for (int s = 0; s < symbolCount; s++) {
+            boolean[] f = symFlags.get(s);
+            symbolSep[s] = f[0];
+            symbolBoundary[s] = f[1];
+            symbolSection[s] = f[2];
+            symbolLineTerminator[s] = f[3];
+            symbolCollapsible[s] = f[0] && f[1] && symbolGroups[s].isEmpty() && !separators.bounded();
+        }
+
+        start = stateFor(closure(new int[]{state(STRONG_ROOT, GAP, 0), state(NORMAL_ROOT, GAP, 0)}));
+    }
+
+    public static FilterMatcher compile(Iterable<String> lines, boolean genderVariants) {
+        return compile(lines, genderVariants, Confusables.BUILT_IN);
+    }
+
+    public static FilterMatcher compile(Iterable<String> lines, boolean genderVariants, Confusables confusables) {
+        return compile(lines, genderVariants, confusables, Separators.UNLIMITED);
+    }
+
+    public static FilterMatcher compile(Iterable<String> lines, boolean genderVariants, Confusables confusables,
+                                        Separators separators) {
+        List<String> words = new ArrayList<>();
+        List<Boolean> strong = new ArrayList<>();
+        FilterGenerator.forEachWord(lines, genderVariants, (clean, isStrong) -> {
+            words.add(clean);
+            strong.add(isStrong);
+        });
+        return new FilterMatcher(words, strong, confusables, separators);
+    }
+
+    public boolean matches(CharSequence message) {
+        State state = start;
+        boolean previousCollapsible = false;
+        boolean previousSection = false;
+        int length = message.length();
+        for (int i = 0; i < length; ) {
+            int cp = Character.codePointAt(message, i);
+            i += Character.charCount(cp);
+            int symbol = symbolOf(cp);
+            if (symbolCollapsible[symbol] && previousCollapsible) continue;
+            // The character after a '§' may be the code itself; the separator after it still needs its own step.
+            previousCollapsible = symbolCollapsible[symbol] && !previousSection;
+            previousSection = symbolSection[symbol];
+
+            if (state.pendingNormal.length > 0 && symbolBoundary[symbol]) return true;
+            state = next(state, symbol);
+            if (state.strongHits.length > 0) return true;
+        }
+        return state.pendingNormal.length > 0;
+    }
+
+    // Each matching word is reported once, with the offset (in the original message) where its first match ends.
+    public List<Hit> findAll(CharSequence message) {
+        Normalized normalized = normalize(message);
+        boolean[] reported = new boolean[words.length];
+        List<Hit> result = new ArrayList<>();
+        State state = start;
+        for (int i = 0; i < normalized.length; i++) {
+            int symbol = normalized.symbols[i];
+            if (symbolBoundary[symbol]) {
+                report(state.pendingNormal, normalized.offsets[i], reported, result);
+            }
+            state = next(state, symbol);
+            int end = i + 1 < normalized.length ? normalized.offsets[i + 1] : message.length();
+            report(state.strongHits, end, reported, result);
+        }
+        report(state.pendingNormal, message.length(), reported, result);
+        return result;
+    }
+
+    Normalized normalize(CharSequence message) {
+        int length = message.length();
+        int[] symbols = new int[length];
+        int[] offsets = new int[length];
+        int count = 0;
+        boolean previousCollapsible = false;
+        boolean previousSection = false;
+        for (int i = 0; i < length; ) {
+            int cp = Character.codePointAt(message, i);
+            int symbol = symbolOf(cp);
+            if (!(symbolCollapsible[symbol] && previousCollapsible)) {
+                symbols[count] = symbol;
+                offsets[count] = i;
+                count++;
+                previousCollapsible = symbolCollapsible[symbol] && !previousSection;
+                previousSection = symbolSection[symbol];
+            }
+            i += Character.charCount(cp);
+        }
+        return new Normalized(symbols, offsets, count);
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    // Every reachable deterministic state, built eagerly for FilterDfa. State 0 is the absorbing "blocked" state: a
+    // Strong hit, or a Normal hit followed by a boundary, jumps there. pending[s] means "blocked if the message ends".
+    // Separator runs are not collapsed here: a run is a self-loop, so the table simply steps over every character.
+    static final class Dfa {
+        final char[] symbolOf;
+        final int symbolCount;
+        final int[][] next;
+        final boolean[] pending;
+        final int start;
+
+        Dfa(char[] symbolOf, int symbolCount, int[][] next, boolean[] pending, int start) {
+            this.symbolOf = symbolOf;
+            this.symbolCount = symbolCount;
+            this.next = next;
+            this.pending = pending;
+            this.start = start;
+        }
+    }
+
+    Dfa determinize(int maxStates) {
+        int symbolCount = symbolGroups.length;
+        Map<Key, Integer> ids = new HashMap<>();
+        List<int[]> sets = new ArrayList<>();
+        List<int[]> transitions = new ArrayList<>();
+        List<Boolean> pending = new ArrayList<>();
+        sets.add(new int[0]);
+        transitions.add(new int[symbolCount]);
+        pending.add(false);
+
+        int[] startSet = closure(new int[]{state(STRONG_ROOT, GAP, 0), state(NORMAL_ROOT, GAP, 0)});
+        ids.put(new Key(startSet), 1);
+        sets.add(startSet);
+        pending.add(false);
+        for (int id = 1; id < sets.size(); id++) {
+            int[] nfa = sets.get(id);
+            boolean blockedAtBoundary = pending.get(id);
+            int[] row = new int[symbolCount];
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                if (blockedAtBoundary && symbolBoundary[symbol]) continue;
+                int[] target = closure(step(nfa, symbol));
+                if (hasStrongHit(target)) continue;
+                Key key = new Key(target);
+                Integer existing = ids.get(key);
+                if (existing == null) {
+                    if (sets.size() >= maxStates) {
+                        throw new IllegalStateException("more than " + maxStates + " DFA states");
+                    }
+                    existing = sets.size();
+                    ids.put(key, existing);
+                    sets.add(target);
+                    pending.add(hasPendingNormal(target));
+                }
+                row[symbol] = existing;
+            }
+            transitions.add(row);
+        }
+
+        boolean[] pendingFlags = new boolean[sets.size()];
+        for (int i = 0; i < pendingFlags.length; i++) pendingFlags[i] = pending.get(i);
+        return new Dfa(bmpSymbols.clone(), symbolCount, transitions.toArray(new int[0][]), pendingFlags, 1);
+    }
+
+    private boolean hasStrongHit(int[] nfa) {
+        for (int st : nfa) {
+            if (kindOf(st) == RUN && nodeStrong[nodeOf(st)] && nodeWords[nodeOf(st)].length > 0) return true;
+        }
+        return false;
+    }
+
+    private boolean hasPendingNormal(int[] nfa) {
+        for (int st : nfa) {
+            if (isPendingNormal(st) && nodeWords[nodeOf(st)].length > 0) return true;
+        }
+        return false;
+    }
+
+    // A Normal word is complete and its trailing separator is still within the letter limit.
+    private boolean isPendingNormal(int st) {
+        return kindOf(st) == GAP && !nodeStrong[nodeOf(st)] && within(countOf(st), separators.letters);
+    }
+
+    private void report(int[] hitWords, int end, boolean[] reported, List<Hit> result) {
+        for (int w : hitWords) {
+            if (!reported[w]) {
+                reported[w] = true;
+                result.add(new Hit(words[w], wordStrong[w], end));
+            }
+        }
+    }
+
+    private int symbolOf(int cp) {
+        return cp < 65536 ? bmpSymbols[cp] : OTHER;
+    }
+
+    private State next(State state, int symbol) {
+        State next = state.next[symbol];
+        if (next != null) return next;
+        synchronized (states) {
+            next = state.next[symbol];
+            if (next == null) {
+                next = stateFor(closure(step(state.nfa, symbol)));
+                if (states.size() < MAX_CACHED_STATES) {
+                    state.next[symbol] = next;
+                }
+            }
+            return next;
+        }
+    }
+
+    private State stateFor(int[] nfa) {
+        Key key = new Key(nfa);
+        State existing = states.get(key);
+        if (existing != null) return existing;
+
+        List<Integer> strongHits = new ArrayList<>();
+        List<Integer> pendingNormal = new ArrayList<>();
+        for (int st : nfa) {
+            int node = nodeOf(st);
+            if (kindOf(st) == RUN && nodeStrong[node]) {
+                for (int w : nodeWords[node]) strongHits.add(w);
+            } else if (isPendingNormal(st)) {
+                for (int w : nodeWords[node]) pendingNormal.add(w);
+            }
+        }
+        State state = new State(nfa, symbolGroups.length,
+                strongHits.stream().mapToInt(Integer::intValue).toArray(),
+                pendingNormal.stream().mapToInt(Integer::intValue).toArray());
+        if (states.size() < MAX_CACHED_STATES) {
+            states.put(key, state);
+        }
+        return state;
+    }
+
+    private int[] step(int[] current, int symbol) {
+        BitSet accepted = symbolGroups[symbol];
+        BitSet out = new BitSet();
+        out.set(state(STRONG_ROOT, GAP, 0));
+        if (symbolBoundary[symbol]) out.set(state(NORMAL_ROOT, GAP, 0));
+
+        for (int st : current) {
+            int node = nodeOf(st);
+            int kind = kindOf(st);
+            if (kind == RUN && nodeAdvance[node] >= 0) {
+                if (accepted.get(nodeGroup[node])) out.set(state(nodeAdvance[node], RUN, 0));
+            } else if (kind == RUN) {
+                if (accepted.get(nodeGroup[node])) out.set(state(node, RUN, 0));
+                enterSequences(node, accepted, out);
+            } else if (kind == GAP) {
+                int count = countOf(st);
+                for (int child : nodeChildren[node]) {
+                    if (!within(count, separators.max(nodeWordGap[child]))) continue;
+                    if (accepted.get(nodeGroup[child])) out.set(state(child, RUN, 0));
+                    enterSequences(child, accepted, out);
+                }
+                int next = Math.min(count + 1, maxCount);
+                if (separators.bounded() && !within(count + 1, nodeGapLimit[node])) continue;
+                if (symbolSep[symbol]) out.set(state(node, GAP, next));
+                if (symbolSection[symbol]) out.set(state(node, GAP_SECTION, next));
+            } else if (!symbolLineTerminator[symbol]) {
+                out.set(state(node, GAP, countOf(st)));
+            }
+        }
+        return out.stream().toArray();
+    }
+
+    private void enterSequences(int node, BitSet accepted, BitSet out) {
+        for (int head : nodeSequences[node]) {
+            if (accepted.get(nodeGroup[head])) out.set(state(nodeAdvance[head], RUN, 0));
+        }
+    }
+
+    // A letter run can always be followed by zero separators; strong leaves never need the gap.
+    private int[] closure(int[] nfa) {
+        BitSet out = new BitSet();
+        for (int st : nfa) {
+            out.set(st);
+            int node = nodeOf(st);
+            if (kindOf(st) == RUN && nodeAdvance[node] < 0 && (nodeChildren[node].length > 0 || !nodeStrong[node])) {
+                out.set(state(node, GAP, 0));
+            }
+        }
+        return out.stream().toArray();
+    }
+
+    // Unbounded separators use a single count slot, so the states are numbered exactly as before.
+    private int state(int node, int kind, int count) {
+        return (node * 3 + kind) * slots + count;
+    }
+
+    private int nodeOf(int st) {
+        return st / slots / 3;
+    }
+
+    private int kindOf(int st) {
+        return st / slots % 3;
+    }
+
+    private int countOf(int st) {
+        return st % slots;
+    }
+
+    private static boolean within(int count, int limit) {
+        return limit == Separators.UNBOUNDED || count <= limit;
+    }
+
+    private static int widest(int a, int b) {
+        return a == Separators.UNBOUNDED || b == Separators.UNBOUNDED ? Separators.UNBOUNDED : Math.max(a, b);
+    }
+
+    // Same rules as the generated '(?i)[...]' classes: case folding only applies to US-ASCII letters.
+    static boolean groupAccepts(String group, char c) {
+        for (char m : group.toCharArray()) {
+            if (m == c) return true;
+            if (m < 128 && c < 128 && Character.isLetter(m) && Character.toLowerCase(m) == Character.toLowerCase(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // \p{Punct} and \p{Space} are US-ASCII only in java.util.regex.
+    static boolean isSeparator(int c) {
+        if (c >= 128) return false;
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r'
+                || (c > 32 && c < 127 && !Character.isLetterOrDigit(c));
+    }
+
+    // Complement of '[a-z0-9§]' under (?i): what the Normal lookbehind and lookahead accept.
+    static boolean isBoundary(int c) {
+        boolean alnum = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        return !alnum && c != '§';
+    }
+
+    private static boolean isLineTerminator(int c) {
+        return c == '\n' || c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029;
+    }
+
+    private static String signature(BitSet groups, boolean sep, boolean boundary, boolean section, boolean lineTerminator) {
+        return groups + "|" + sep + boundary + section + lineTerminator;
+    }
+}
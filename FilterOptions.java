@@ -0,0 +1,175 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterOptions
+// Immutable snapshot of every generator setting, for callers that build filters away from the GUI.
+// Note:
+// A FilterOptions can be shared between threads and kept next to the FilterSet built from it; changing a setting
+// means toBuilder()...build(), never mutating a live object. newGenerator() gives a fresh FilterGenerator per build,
+// so concurrent builds never share generator state (only the thread-safe RegexCache, when one is passed).
+// Like every class here, this lives in the unnamed package: only code compiled in the unnamed package (a plugin
+// that includes these sources) can use it, since named packages cannot import from it. Settings whose types are
+// package-private (optimizer passes, suffix rules, separators) are package-private here as well.
+//======================================================================================================================
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+public final class FilterOptions {
+    public static final FilterOptions DEFAULT = builder().build();
+
+    public final boolean useQuotes;
+    public final int indentationLevel;
+    public final boolean genderVariants;
+    public final boolean titles;
+    public final int combinedPatternCount;
+    final Set<RegexOptimizer.Pass> optimizerPasses;
+    public final Confusables confusables;
+    public final boolean dropRedundant;
+    final SuffixRules suffixRules;
+    final Separators separators;
+    public final Allowlist allowlist;
+    public final boolean stripColors;
+
+    private FilterOptions(Builder b) {
+        this.useQuotes = b.useQuotes;
+        this.indentationLevel = b.indentationLevel;
+        this.genderVariants = b.genderVariants;
+        this.titles = b.titles;
+        this.combinedPatternCount = b.combinedPatternCount;
+        this.optimizerPasses = Collections.unmodifiableSet(EnumSet.copyOf(b.optimizerPasses));
+        this.confusables = b.confusables;
+        this.dropRedundant = b.dropRedundant;
+        this.suffixRules = b.suffixRules;
+        this.separators = b.separators;
+        this.allowlist = b.allowlist;
+        this.stripColors = b.stripColors;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+                .useQuotes(useQuotes)
+                .indentationLevel(indentationLevel)
+                .genderVariants(genderVariants)
+                .titles(titles)
+                .combinedPatternCount(combinedPatternCount)
+                .optimizerPasses(optimizerPasses)
+                .confusables(confusables)
+                .dropRedundant(dropRedundant)
+                .suffixRules(suffixRules)
+                .separators(separators)
+                .allowlist(allowlist)
+                .stripColors(stripColors);
+    }
+
+    public FilterGenerator newGenerator() {
+        return new FilterGenerator()
+                .setUseQuotes(useQuotes)
+                .setIndentationLevel(indentationLevel)
+                .setGenderVariants(genderVariants)
+                .setTitles(titles)
+                .setCombinedPatternCount(combinedPatternCount)
+                .setOptimizerPasses(optimizerPasses)
+                .setConfusables(confusables)
+                .setDropRedundant(dropRedundant)
+                .setSuffixRules(suffixRules)
+                .setSeparators(separators)
+                .setAllowlist(allowlist)
+                .setStripColors(stripColors);
+    }
+
+    // Same text as FilterGenerator.describeOptions(), so equal options give equal save hashes.
+    @Override
+    public String toString() {
+        return newGenerator().describeOptions();
+    }
+
+    public static final class Builder {
+        private boolean useQuotes = false;
+        private int indentationLevel = 0;
+        private boolean genderVariants = false;
+        private boolean titles = false;
+        private int combinedPatternCount = 0;
+        private EnumSet<RegexOptimizer.Pass> optimizerPasses = EnumSet.noneOf(RegexOptimizer.Pass.class);
+        private Confusables confusables = Confusables.BUILT_IN;
+        private boolean dropRedundant = false;
+        private SuffixRules suffixRules;
+        private Separators separators = Separators.UNLIMITED;
+        private Allowlist allowlist = Allowlist.EMPTY;
+        private boolean stripColors = false;
+
+        private Builder() {
+        }
+
+        public Builder useQuotes(boolean useQuotes) {
+            this.useQuotes = useQuotes;
+            return this;
+        }
+
+        public Builder indentationLevel(int indentationLevel) {
+            if (indentationLevel < 0) throw new IllegalArgumentException("indentation must be 0 or more");
+            this.indentationLevel = indentationLevel;
+            return this;
+        }
+
+        public Builder genderVariants(boolean genderVariants) {
+            this.genderVariants = genderVariants;
+            return this;
+        }
+
+        public Builder titles(boolean titles) {
+            this.titles = titles;
+            return this;
+        }
+
+        public Builder combinedPatternCount(int combinedPatternCount) {
+            if (combinedPatternCount < 0) throw new IllegalArgumentException("combined pattern count must be 0 or more");
+            this.combinedPatternCount = combinedPatternCount;
+            return this;
+        }
+
+        Builder optimizerPasses(Set<RegexOptimizer.Pass> optimizerPasses) {
+            this.optimizerPasses = EnumSet.noneOf(RegexOptimizer.Pass.class);
+            this.optimizerPasses.addAll(optimizerPasses);
+            return this;
+        }
+
+        public Builder confusables(Confusables confusables) {
+            this.confusables = confusables == null ? Confusables.BUILT_IN : confusables;
+            return this;
+        }
+
+        public Builder dropRedundant(boolean dropRedundant) {
+            this.dropRedundant = dropRedundant;
+            return this;
+        }
+
+        // null turns folding off.
+        Builder suffixRules(SuffixRules suffixRules) {
+            this.suffixRules = suffixRules;
+            return this;
+        }
+
+        Builder separators(Separators separators) {
+            this.separators = separators == null ? Separators.UNLIMITED : separators;
+            return this;
+        }
+
+        public Builder allowlist(Allowlist allowlist) {
+            this.allowlist = allowlist == null ? Allowlist.EMPTY : allowlist;
+            return this;
+        }
+
+        public Builder stripColors(boolean stripColors) {
+            this.stripColors = stripColors;
+            return this;
+        }
+
+        public FilterOptions build() {
+            return new FilterOptions(this);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterPattern
+// Small AST for one generated filter: fixed fragments, letter classes with a quantifier, and separators.
+// Note:
+// Rendering an unoptimized tree gives exactly the string generateNormalRegex/generateStrongRegex always produced;
+// RegexOptimizer rewrites the tree, never the string.
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.List;
+
+final class FilterPattern {
+
+    enum Quantifier { GREEDY, POSSESSIVE }
+
+    interface Node {}
+
+    static final class Literal implements Node {
+        final String text;
+
+        Literal(String text) {
+            this.text = text;
+        }
+    }
+
+    static final class Letter implements Node {
+        final String group;
+        final String chars;
+        final String[] sequences;
+        final int min;
+        final int max;
+        final Quantifier quantifier;
+
+        Letter(String group, String chars, String[] sequences, int min, int max, Quantifier quantifier) {
+            this.group = group;
+            this.chars = chars;
+            this.sequences = sequences;
+            this.min = min;
+            this.max = max;
+            this.quantifier = quantifier;
+        }
+
+        Letter with(int min, int max, Quantifier quantifier) {
+            return new Letter(group, chars, sequences, min, max, quantifier);
+        }
+
+        Letter withGroup(String group) {
+            return new Letter(group, chars, sequences, min, max, quantifier);
+        }
+    }
+
+    static final class Separator implements Node {
+        final boolean lazy;
+        final int max;
+        final boolean colorCodes;
+
+        Separator(boolean lazy) {
+            this(lazy, Separators.UNBOUNDED);
+        }
+
+        Separator(boolean lazy, int max) {
+            this(lazy, max, false);
+        }
+
+        Separator(boolean lazy, int max, boolean colorCodes) {
+            this.lazy = lazy;
+            this.max = max;
+            this.colorCodes = colorCodes;
+        }
+    }
+
+    static final int UNBOUNDED = -1;
+
+    final List<Node> nodes;
+
+    FilterPattern(List<Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    static FilterPattern normal(String word, boolean guardian) {
+        return normal(word, guardian, Confusables.BUILT_IN);
+    }
+
+    static FilterPattern normal(String word, boolean guardian, Confusables confusables) {
+        return normal(word, guardian, confusables, Separators.UNLIMITED);
+    }
+
+    static FilterPattern normal(String word, boolean guardian, Confusables confusables, Separators separators) {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(new Literal(FilterGenerator.NORMAL_PREFIX_REGEX));
+        if (guardian && word.length() > 1) nodes.add(new Literal(guardian(word, confusables)));
+        nodes.add(new Separator(false, separators.letters, separators.colorCodes));
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) == Separators.WORD_GAP) continue;
+            nodes.add(letter(word.charAt(i), confusables));
+            boolean last = i == word.length() - 1;
+            nodes.add(new Separator(last, separators.max(!last && word.charAt(i + 1) == Separators.WORD_GAP),
+                    separators.colorCodes));
+        }
+        nodes.add(new Literal(separators.normalSuffix()));
+        return new FilterPattern(nodes);
+    }
+
+    static FilterPattern strong(String word, boolean guardian) {
+        return strong(word, guardian, Confusables.BUILT_IN);
+    }
+
+    static FilterPattern strong(String word, boolean guardian, Confusables confusables) {
+        return strong(word, guardian, confusables, Separators.UNLIMITED);
+    }
+
+    static FilterPattern strong(String word, boolean guardian, Confusables confusables, Separators separators) {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(new Literal(FilterGenerator.STRONG_PREFIX_REGEX));
+        if (guardian && word.length() > 1) nodes.add(new Literal(guardian(word, confusables)));
+        nodes.add(new Literal(FilterGenerator.STRONG_BODY_PREFIX));
+        boolean gap = false;
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) == Separators.WORD_GAP) {
+                gap = true;
+                continue;
+            }
+            if (i > 0) nodes.add(new Separator(false, separators.max(gap), separators.colorCodes));
+            nodes.add(letter(word.charAt(i), confusables));
+            gap = false;
+        }
+        nodes.add(new Literal(FilterGenerator.STRONG_BODY_SUFFIX));
+        return new FilterPattern(nodes);
+    }
+
+    // The complete Strong filter as written to the YAML, including STRONG_FINAL_REGEX_SEP.
+    static FilterPattern strongFilter(String word, boolean guardian, Confusables confusables) {
+        return strongFilter(word, guardian, confusables, Separators.UNLIMITED);
+    }
+
+    static FilterPattern strongFilter(String word, boolean guardian, Confusables confusables, Separators separators) {
+        FilterPattern pattern = strong(word, guardian, confusables, separators);
+        pattern.nodes.add(new Separator(true, separators.letters, separators.colorCodes));
+        return pattern;
+    }
+
+    String render() {
+        StringBuilder sb = new StringBuilder();
+        for (Node node : nodes) {
+            if (node instanceof Literal) {
+                sb.append(((Literal) node).text);
+            } else if (node instanceof Separator) {
+                sb.append(Separators.regex(((Separator) node).max, ((Separator) node).colorCodes));
+                if (((Separator) node).lazy) sb.append('?');
+            } else {
+                Letter l = (Letter) node;
+                if (l.sequences.length == 0) {
+                    sb.append('[').append(l.group).append(']');
+                } else {
+                    sb.append("(?:[").append(l.group).append(']');
+                    for (String seq : l.sequences) sb.append('|').append(Confusables.literal(seq));
+                    sb.append(')');
+                }
+                if (l.min == 1 && l.max == UNBOUNDED) {
+                    sb.append('+');
+                } else if (l.max == UNBOUNDED) {
+                    sb.append('{').append(l.min).append(",}");
+                } else if (l.min != 1 || l.max != 1) {
+                    sb.append('{').append(l.min).append(',').append(l.max).append('}');
+                }
+                if (l.quantifier == Quantifier.POSSESSIVE && !(l.min == 1 && l.max == 1)) sb.append('+');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Letter letter(char c, Confusables confusables) {
+        return new Letter(confusables.classFor(c), confusables.membersOf(c), confusables.sequencesOf(c),
+                1, UNBOUNDED, Quantifier.GREEDY);
+    }
+
+    private static String guardian(String word, Confusables confusables) {
+        StringBuilder sb = new StringBuilder("(?=.*");
+        confusables.appendItem(sb, word.charAt(0));
+        sb.append(".*");
+        confusables.appendItem(sb, word.charAt(word.length() - 1));
+        return sb.append(')').toString();
+    }
+}
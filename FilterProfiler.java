@@ -0,0 +1,146 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterProfiler
+// Deterministic cost of each generated filter over a corpus: characters the regex engine reads (CountingCharSequence).
+// Note:
+// Unlike the tester's nanosecond timings, the counts are the same on every run and machine, so two word lists or
+// two option sets can be compared directly. Each message is asked the plugin's question, one find(); a message that
+// reaches the step limit is stopped there and counted at the limit.
+//======================================================================================================================
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+final class FilterProfiler {
+
+    static final class Profile {
+        final FilterGenerator.GeneratedFilter filter;
+        final long totalSteps;
+        final long maxSteps;
+        final String worstMessage;
+        final int messages;
+        final int matchedMessages;
+        final boolean exceeded;
+
+        Profile(FilterGenerator.GeneratedFilter filter, long totalSteps, long maxSteps, String worstMessage, int messages,
+                int matchedMessages, boolean exceeded) {
+            this.filter = filter;
+            this.totalSteps = totalSteps;
+            this.maxSteps = maxSteps;
+            this.worstMessage = worstMessage;
+            this.messages = messages;
+            this.matchedMessages = matchedMessages;
+            this.exceeded = exceeded;
+        }
+
+        long averageSteps() {
+            return messages == 0 ? 0 : totalSteps / messages;
+        }
+    }
+
+    // Most engine work first.
+    static final Comparator<Profile> BY_TOTAL = Comparator.comparingLong((Profile p) -> p.totalSteps).reversed();
+
+    private final long stepLimit;
+
+    FilterProfiler(long stepLimit) {
+        this.stepLimit = stepLimit;
+    }
+
+    FilterProfiler() {
+        this(FilterSafetyAnalyzer.DEFAULT_MAX_STEPS);
+    }
+
+    // Filters are independent, so they are profiled across cores; the result follows the filter order.
+    List<Profile> profile(List<FilterGenerator.GeneratedFilter> filters, List<String> messages) {
+        return filters.parallelStream().map(filter -> profile(filter, messages)).collect(Collectors.toList());
+    }
+
+    private Profile profile(FilterGenerator.GeneratedFilter filter, List<String> messages) {
+        Pattern pattern = Pattern.compile(filter.regex);
+        long total = 0;
+        long max = -1;
+        String worst = "";
+        int matched = 0;
+        boolean exceeded = false;
+        for (String message : messages) {
+            CountingCharSequence text = new CountingCharSequence(message, stepLimit);
+            long steps;
+            try {
+                if (pattern.matcher(text).find()) matched++;
+                steps = text.reads();
+            } catch (CountingCharSequence.LimitExceededException e) {
+                steps = stepLimit;
+                exceeded = true;
+            }
+            total += steps;
+            if (steps > max) {
+                max = steps;
+                worst = message;
+            }
+        }
+        return new Profile(filter, total, Math.max(max, 0), worst, messages.size(), matched, exceeded);
+    }
+
+    // ---- Export ----
+
+    static void writeCsv(List<Profile> profiles, Appendable out) throws IOException {
+        out.append("filter,strong,total_steps,avg_steps,max_steps,matched,messages,exceeded,worst_message\n");
+        for (Profile p : profiles) {
+            out.append(csv(p.filter.title)).append(',')
+                    .append(Boolean.toString(p.filter.strong)).append(',')
+                    .append(Long.toString(p.totalSteps)).append(',')
+                    .append(Long.toString(p.averageSteps())).append(',')
+                    .append(Long.toString(p.maxSteps)).append(',')
+                    .append(Integer.toString(p.matchedMessages)).append(',')
+                    .append(Integer.toString(p.messages)).append(',')
+                    .append(Boolean.toString(p.exceeded)).append(',')
+                    .append(csv(p.worstMessage)).append('\n');
+        }
+    }
+
+    static void writeJson(List<Profile> profiles, Appendable out) throws IOException {
+        out.append("[\n");
+        for (int i = 0; i < profiles.size(); i++) {
+            Profile p = profiles.get(i);
+            out.append(String.format(Locale.ROOT,
+                    "  {\"filter\": %s, \"strong\": %b, \"totalSteps\": %d, \"avgSteps\": %d, \"maxSteps\": %d, "
+                            + "\"matched\": %d, \"messages\": %d, \"exceeded\": %b, \"worstMessage\": %s}",
+                    json(p.filter.title), p.filter.strong, p.totalSteps, p.averageSteps(), p.maxSteps,
+                    p.matchedMessages, p.messages, p.exceeded, json(p.worstMessage)));
+            out.append(i + 1 < profiles.size() ? ",\n" : "\n");
+        }
+        out.append("]\n");
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,338 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterReplay
+// Replays a real chat log against two FilteredWords.yml files (old and new) before a rollout.
+// Usage:
+// java FilterReplay old.yml new.yml chat.log [--threads N] [--warmup N] [--max-diff N]
+// Note:
+// The log (one message per line, UTF-8, any size) is memory-mapped in segments and cut into chunks at line
+// breaks; chunks are replayed on --threads workers, one file at a time so the two never compete for cores.
+// Each message is timed on its own (decoding excluded) into a log-linear histogram, so memory does not grow with
+// the log. The report gives messages/second, latency percentiles and every message whose blocked/allowed
+// decision changed, with the filter that blocks it now or blocked it before (the first --max-diff are printed).
+//======================================================================================================================
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class FilterReplay {
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int CHUNK_BYTES = 1 << 22;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    // One stretch of whole lines inside a mapped segment.
+    private static final class Chunk {
+        final MappedByteBuffer buffer;
+        final int start;
+        final int end;
+        int firstLine;
+        int lines;
+
+        Chunk(MappedByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    interface LineVisitor {
+        void visit(int line, String message);
+    }
+
+    // Counts per bucket: exact below 16 ns, then 16 buckets per power of two (about 6% wide).
+    static final class LatencyHistogram {
+        private static final int SUB_BUCKETS = 16;
+        final long[] counts = new long[64 * SUB_BUCKETS];
+        long total;
+        long max;
+
+        void record(long nanos) {
+            counts[bucket(nanos)]++;
+            total++;
+            max = Math.max(max, nanos);
+        }
+
+        void add(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        // The upper edge of the bucket holding the given percentile, never above the largest value seen.
+        long percentile(double percent) {
+            long rank = (long) Math.ceil(total * percent / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) return Math.min(lowerBound(i + 1) - 1, max);
+            }
+            return max;
+        }
+
+        private static int bucket(long nanos) {
+            if (nanos < SUB_BUCKETS) return (int) Math.max(nanos, 0);
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            return (exponent - 3) * SUB_BUCKETS + (int) ((nanos >>> (exponent - 4)) & (SUB_BUCKETS - 1));
+        }
+
+        private static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + 3;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 4);
+        }
+    }
+
+    static final class Run {
+        final FilteredWordsFile file;
+        final BitSet blocked = new BitSet();
+        final LatencyHistogram latency = new LatencyHistogram();
+        long wallNanos;
+
+        Run(FilteredWordsFile file) {
+            this.file = file;
+        }
+
+        double messagesPerSecond() {
+            return wallNanos == 0 ? 0 : latency.total * 1e9 / wallNanos;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int warmup = 10_000;
+        int maxDiff = 50;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads": threads = Integer.parseInt(args[++i]); break;
+                    case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                    case "--max-diff": maxDiff = Integer.parseInt(args[++i]); break;
+                    default:
+                        if (args[i].startsWith("--")) throw new IllegalArgumentException(args[i]);
+                        files.add(args[i]);
+                }
+            }
+            if (files.size() != 3 || threads < 1) throw new IllegalArgumentException();
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: java FilterReplay old.yml new.yml chat.log [--threads N] [--warmup N] [--max-diff N]");
+            System.exit(2);
+            return;
+        }
+
+        FilteredWordsFile before;
+        FilteredWordsFile after;
+        try {
+            before = FilteredWordsFile.read(Paths.get(files.get(0)));
+            after = FilteredWordsFile.read(Paths.get(files.get(1)));
+        } catch (IOException e) {
+            System.err.println("Error reading filters: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        // UTF-8 whatever the console encoding, so the messages in the diff survive a redirect to a file.
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        Path log = Paths.get(files.get(2));
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            List<Chunk> chunks = chunks(channel);
+            int lines = numberLines(chunks);
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+            try {
+                Run oldRun = new Run(before);
+                Run newRun = new Run(after);
+                for (Run run : List.of(oldRun, newRun)) {
+                    warmUp(run.file, chunks, warmup);
+                    replay(run, chunks, workers);
+                }
+                out.printf(Locale.ROOT, "Replayed %d messages (%d lines, %.1f MB) from %s on %d threads%n",
+                        oldRun.latency.total, lines, channel.size() / 1e6, log, threads);
+                report(out, oldRun, newRun);
+                diff(out, oldRun, newRun, chunks, maxDiff);
+            } finally {
+                workers.shutdown();
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading " + log + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Segments of at most SEGMENT_BYTES (a mapping is limited to 2 GB), each cut into chunks of about CHUNK_BYTES.
+    private static List<Chunk> chunks(FileChannel channel) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            long length = Math.min(SEGMENT_BYTES, size - position);
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int end = (int) length;
+            if (position + length < size) {
+                end = lastLineBreak(segment, end) + 1;
+                // A single line longer than a segment is cut there.
+                if (end == 0) end = (int) length;
+            }
+            int start = 0;
+            while (start < end) {
+                int stop = Math.min(start + CHUNK_BYTES, end);
+                if (stop < end) {
+                    int lineBreak = lastLineBreak(segment, stop);
+                    stop = lineBreak >= start ? lineBreak + 1 : stop;
+                }
+                chunks.add(new Chunk(segment, start, stop));
+                start = stop;
+            }
+            position += end;
+        }
+        return chunks;
+    }
+
+    private static int lastLineBreak(MappedByteBuffer buffer, int before) {
+        for (int i = before - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int numberLines(List<Chunk> chunks) {
+        int lines = 0;
+        for (Chunk chunk : chunks) {
+            chunk.firstLine = lines;
+            for (int i = chunk.start; i < chunk.end; i++) {
+                if (chunk.buffer.get(i) == '\n') lines++;
+            }
+            if (chunk.end > chunk.start && chunk.buffer.get(chunk.end - 1) != '\n') lines++;
+            chunk.lines = lines - chunk.firstLine;
+        }
+        return lines;
+    }
+
+    // Blank lines are numbered but not replayed; a trailing '\r' is dropped.
+    private static void forEachLine(Chunk chunk, LineVisitor visitor) {
+        // Each worker reads through its own view; the mapped segment is shared.
+        ByteBuffer view = chunk.buffer.duplicate();
+        byte[] bytes = new byte[256];
+        int line = chunk.firstLine;
+        int start = chunk.start;
+        while (start < chunk.end) {
+            int end = start;
+            while (end < chunk.end && chunk.buffer.get(end) != '\n') end++;
+            int stop = end > start && chunk.buffer.get(end - 1) == '\r' ? end - 1 : end;
+            int length = stop - start;
+            if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+            view.position(start);
+            view.get(bytes, 0, length);
+            String message = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            if (!message.trim().isEmpty()) visitor.visit(line, message);
+            line++;
+            start = end + 1;
+        }
+    }
+
+    // The first messages of the log, once, so the timed run is not measuring the JIT.
+    private static void warmUp(FilteredWordsFile file, List<Chunk> chunks, int messages) {
+        int[] left = {messages};
+        for (Chunk chunk : chunks) {
+            if (left[0] <= 0) return;
+            forEachLine(chunk, (line, message) -> {
+                if (left[0]-- > 0) file.firstBlocking(message);
+            });
+        }
+    }
+
+    private static void replay(Run run, List<Chunk> chunks, ExecutorService workers) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            tasks.add(() -> {
+                LatencyHistogram latency = new LatencyHistogram();
+                BitSet blocked = new BitSet();
+                forEachLine(chunk, (line, message) -> {
+                    long start = System.nanoTime();
+                    boolean hit = run.file.firstBlocking(message) >= 0;
+                    latency.record(System.nanoTime() - start);
+                    if (hit) blocked.set(line - chunk.firstLine);
+                });
+                synchronized (run) {
+                    run.latency.add(latency);
+                    for (int b = blocked.nextSetBit(0); b >= 0; b = blocked.nextSetBit(b + 1)) {
+                        run.blocked.set(chunk.firstLine + b);
+                    }
+                }
+                return null;
+            });
+        }
+        long start = System.nanoTime();
+        try {
+            for (Future<Void> result : workers.invokeAll(tasks)) result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        run.wallNanos = System.nanoTime() - start;
+    }
+
+    private static void report(PrintStream out, Run... runs) {
+        out.printf("%-32s %7s %12s", "file", "filters", "msgs/sec");
+        for (double p : PERCENTILES) out.printf("%11s", "p" + format(p) + " µs");
+        out.printf("%11s %9s%n", "max µs", "blocked");
+        for (Run run : runs) {
+            out.printf(Locale.ROOT, "%-32s %7d %12.0f", run.file.path, run.file.size(), run.messagesPerSecond());
+            for (double p : PERCENTILES) out.printf(Locale.ROOT, "%11.1f", run.latency.percentile(p) / 1e3);
+            out.printf(Locale.ROOT, "%11.1f %9d%n", run.latency.max / 1e3, run.blocked.cardinality());
+        }
+    }
+
+    // Messages are decoded again only for the chunks that hold a changed decision.
+    private static void diff(PrintStream out, Run oldRun, Run newRun, List<Chunk> chunks, int maxDiff) {
+        BitSet changed = (BitSet) oldRun.blocked.clone();
+        changed.xor(newRun.blocked);
+        BitSet nowBlocked = (BitSet) changed.clone();
+        nowBlocked.and(newRun.blocked);
+        out.printf("Decision changed for %d messages (%d now blocked, %d now allowed)%n",
+                changed.cardinality(), nowBlocked.cardinality(), changed.cardinality() - nowBlocked.cardinality());
+        int[] printed = {0};
+        for (Chunk chunk : chunks) {
+            if (printed[0] >= maxDiff) break;
+            int next = changed.nextSetBit(chunk.firstLine);
+            if (next < 0) break;
+            if (next >= chunk.firstLine + chunk.lines) continue;
+            forEachLine(chunk, (line, message) -> {
+                if (!changed.get(line) || printed[0]++ >= maxDiff) return;
+                if (newRun.blocked.get(line)) {
+                    out.println("+ blocked  line " + (line + 1) + "  by \"" + title(newRun.file, message) + "\": " + message);
+                } else {
+                    out.println("- allowed  line " + (line + 1) + "  was \"" + title(oldRun.file, message) + "\": " + message);
+                }
+            });
+        }
+        if (changed.cardinality() > maxDiff) {
+            out.println("... " + (changed.cardinality() - maxDiff) + " more (--max-diff)");
+        }
+    }
+
+    private static String title(FilteredWordsFile file, String message) {
+        int filter = file.firstBlocking(message);
+        return filter < 0 ? "?" : file.titles.get(filter);
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
@@ -0,0 +1,239 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterSafetyAnalyzer
+// Catastrophic-backtracking (ReDoS) check that runs after generation, before anything is saved.
+// Note:
+// Static stage: flags letters whose Confusables group shares characters with SEP ('!', '|', '$') or with the next
+// letter's group ('i' -> 'l', 'ss'), because '[x]+SEP[y]+' can then split the same text in many ways.
+// Dynamic stage: every compiled pattern is run against crafted worst-case messages (chat length) plus a mutation
+// search, counting the characters the regex engine reads. Filters above the step limit are reported; the CLI
+// (--analyze) and the GUI (when "Check Backtracking Before Saving" is ticked) then refuse to save them.
+// The search is seeded by the pattern and bounded in steps, not time, so a filter is refused on every machine or
+// on none.
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+final class FilterSafetyAnalyzer {
+    static final int MESSAGE_LENGTH = 256;
+    // Any filter reads ~8.5M characters on its worst 256-character message and two repeated letters ~21M. A letter
+    // whose group overlaps SEP ('i', 'l', 's') costs 130M-370M ("libro", "leche", "shit", "imbecil") and passes;
+    // two such runs side by side ("pollo", "listo") grow past 5G and are flagged.
+    static final long DEFAULT_MAX_STEPS = 500_000_000;
+    static final long DEFAULT_SEARCH_STEPS = 1_000_000;
+    private static final int MAX_MUTATIONS = 200;
+    private static final int MAX_TARGETED_WORDS = 20;
+    private static final String FUZZ_SEPARATORS = ". !|$§c";
+
+    static final class Report {
+        final FilterGenerator.GeneratedFilter filter;
+        final List<String> warnings;
+        final long worstSteps;
+        final String worstInput;
+        final boolean exceeded;
+
+        Report(FilterGenerator.GeneratedFilter filter, List<String> warnings, long worstSteps, String worstInput, boolean exceeded) {
+            this.filter = filter;
+            this.warnings = warnings;
+            this.worstSteps = worstSteps;
+            this.worstInput = worstInput;
+            this.exceeded = exceeded;
+        }
+    }
+
+    private final long maxSteps;
+    private final long searchSteps;
+    private final Confusables confusables;
+    private final Map<String, Report> cache = new ConcurrentHashMap<>();
+
+    FilterSafetyAnalyzer(long maxSteps, long searchSteps, Confusables confusables) {
+        this.maxSteps = maxSteps;
+        this.searchSteps = searchSteps;
+        this.confusables = confusables;
+    }
+
+    FilterSafetyAnalyzer(long maxSteps, long searchSteps) {
+        this(maxSteps, searchSteps, Confusables.BUILT_IN);
+    }
+
+    FilterSafetyAnalyzer() {
+        this(DEFAULT_MAX_STEPS, DEFAULT_SEARCH_STEPS);
+    }
+
+    long maxSteps() {
+        return maxSteps;
+    }
+
+    // Reports are memoized per pattern, so saving again only analyzes filters that changed.
+    Report analyze(FilterGenerator.GeneratedFilter filter) {
+        Report cached = cache.get(filter.regex);
+        if (cached != null) {
+            return new Report(filter, cached.warnings, cached.worstSteps, cached.worstInput, cached.exceeded);
+        }
+        Report report = search(filter);
+        cache.put(filter.regex, report);
+        return report;
+    }
+
+    private Report search(FilterGenerator.GeneratedFilter filter) {
+        List<String> warnings = new ArrayList<>();
+        List<String> targeted = filter.words.size() > MAX_TARGETED_WORDS ? filter.words.subList(0, MAX_TARGETED_WORDS) : filter.words;
+        Set<String> inputs = new LinkedHashSet<>();
+        StringBuilder alphabet = new StringBuilder(FUZZ_SEPARATORS);
+        for (String word : targeted) {
+            warnings.addAll(staticWarnings(word));
+            inputs.addAll(worstCaseInputs(word));
+            for (char c : word.toCharArray()) {
+                alphabet.append(group(c));
+                for (String seq : confusables.sequencesOf(c)) alphabet.append(seq);
+            }
+        }
+
+        Pattern pattern = Pattern.compile(filter.regex);
+        long worst = -1;
+        String worstInput = "";
+        for (String input : inputs) {
+            long steps = steps(pattern, input);
+            if (steps > worst) {
+                worst = steps;
+                worstInput = input;
+            }
+            if (worst > maxSteps) break;
+        }
+
+        // Mutation search: keep any change that makes the engine read more characters, until the mutations have
+        // read searchSteps characters in total (or MAX_MUTATIONS were tried on a cheap pattern).
+        Random random = new Random(filter.regex.hashCode());
+        long spent = 0;
+        char[] candidate = worstInput.isEmpty() ? new char[MESSAGE_LENGTH] : worstInput.toCharArray();
+        if (worstInput.isEmpty()) {
+            for (int i = 0; i < candidate.length; i++) candidate[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        for (int tried = 0; worst <= maxSteps && spent < searchSteps && tried < MAX_MUTATIONS; tried++) {
+            char[] mutated = candidate.clone();
+            for (int m = 1 + random.nextInt(4); m > 0; m--) {
+                mutated[random.nextInt(mutated.length)] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            String input = new String(mutated);
+            long steps = steps(pattern, input);
+            spent += steps;
+            if (steps >= worst) {
+                worst = steps;
+                worstInput = input;
+                candidate = mutated;
+            }
+        }
+        return new Report(filter, warnings, worst, worstInput, worst > maxSteps);
+    }
+
+    // Forgets the reports of patterns that are no longer generated, for long-running callers (WordListWatcher).
+    void retainOnly(List<FilterGenerator.GeneratedFilter> filters) {
+        Set<String> regexes = filters.stream().map(f -> f.regex).collect(Collectors.toSet());
+        cache.keySet().retainAll(regexes);
+    }
+
+    // Filters are independent, so they are analyzed across cores; the report order follows the input order.
+    List<Report> analyzeAll(List<FilterGenerator.GeneratedFilter> filters) {
+        return filters.parallelStream().map(this::analyze).collect(Collectors.toList());
+    }
+
+    // Streaming saves of large lists: known patterns still come from the memo, new ones are not added to it.
+    List<Report> analyzeBatch(List<FilterGenerator.GeneratedFilter> filters) {
+        return filters.parallelStream().map(filter -> {
+            Report cached = cache.get(filter.regex);
+            return cached != null ? analyze(filter) : search(filter);
+        }).collect(Collectors.toList());
+    }
+
+    private long steps(Pattern pattern, String input) {
+        CountingCharSequence text = new CountingCharSequence(input, maxSteps + 1);
+        try {
+            pattern.matcher(text).find();
+        } catch (CountingCharSequence.LimitExceededException e) {
+            return maxSteps + 1;
+        }
+        return text.reads();
+    }
+
+    // The space of a phrase is a separator, not a letter.
+    List<String> staticWarnings(String word) {
+        String letters = word.replace(" ", "");
+        List<String> warnings = new ArrayList<>();
+        for (int i = 0; i < letters.length(); i++) {
+            String group = group(letters.charAt(i));
+            String withSep = separatorOverlap(group);
+            if (!withSep.isEmpty()) {
+                warnings.add(word + ": [" + group + "]+ shares '" + withSep + "' with SEP");
+            }
+            if (i + 1 < letters.length()) {
+                String next = group(letters.charAt(i + 1));
+                String shared = overlap(group, next);
+                if (!shared.isEmpty()) {
+                    warnings.add(word + ": [" + group + "]+ and [" + next + "]+ overlap on '" + shared + "'");
+                }
+            }
+        }
+        return warnings;
+    }
+
+    // Long runs of characters that two adjacent quantifiers (or a quantifier and SEP) both accept, with the rest
+    // of the word missing so every split is tried before the attempt fails.
+    List<String> worstCaseInputs(String word) {
+        word = word.replace(" ", "");
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < word.length(); i++) {
+            String group = group(word.charAt(i));
+            String ambiguous = separatorOverlap(group);
+            if (i + 1 < word.length()) ambiguous += overlap(group, group(word.charAt(i + 1)));
+            for (char c : ambiguous.toCharArray()) {
+                inputs.add(fill(word.substring(0, i), Character.toString(c), ""));
+            }
+        }
+
+        String head = word.length() > 1 ? word.substring(0, word.length() - 1) : word;
+        StringBuilder stutter = new StringBuilder();
+        StringBuilder colored = new StringBuilder();
+        for (char c : head.toCharArray()) {
+            stutter.append(c).append(c).append(". ");
+            colored.append(c).append("§c§l§c§l");
+        }
+        inputs.add(fill("", stutter.toString(), ""));
+        inputs.add(fill("", colored.toString(), ""));
+        inputs.add(fill("", word + "z", ""));
+        inputs.add(fill("", word.charAt(0) + " . ", word.substring(1) + "z"));
+        return inputs;
+    }
+
+    private static String fill(String prefix, String unit, String suffix) {
+        StringBuilder sb = new StringBuilder(prefix);
+        while (sb.length() + unit.length() + suffix.length() <= MESSAGE_LENGTH) sb.append(unit);
+        return sb.append(suffix).toString();
+    }
+
+    private String group(char c) {
+        return confusables.membersOf(c);
+    }
+
+    private static String separatorOverlap(String group) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : group.toCharArray()) {
+            if (FilterMatcher.isSeparator(c) && sb.indexOf(Character.toString(c)) < 0) sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static String overlap(String a, String b) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : a.toCharArray()) {
+            if (FilterMatcher.groupAccepts(b, c) && sb.indexOf(Character.toString(c)) < 0) sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,300 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterService
+// Local HTTP service answering "would this be blocked?" from the generated FilteredWords.yml.
+// Usage:
+// java FilterService [-o FilteredWords.yml] [--port 8765] [--bind 127.0.0.1]
+//   POST /check     body: messages, one per line (UTF-8); answer: one line per message, "allowed" or
+//                   "blocked<TAB>filter title", in the same order (trailing blank lines are not messages)
+//   GET  /metrics   counters and latency percentiles, Prometheus text format
+// Note:
+// The file is loaded once and read back with FilteredWordsFile, so every tool gets the plugin's decision without
+// parsing the YAML itself. Each request runs on a virtual thread when the JVM has them (Java 21+, looked up by
+// reflection so the class still compiles and runs on 17) and on a cached pool otherwise. When the output file is
+// replaced (FilterGeneratorCLI --watch, a GUI save) the new set is loaded in the background and swapped in whole;
+// requests already running finish on the set they started with, and a file that fails to load is ignored.
+// Binds to the loopback interface only unless --bind says otherwise. Unix-domain sockets are not offered:
+// com.sun.net.httpserver only listens on TCP.
+//======================================================================================================================
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FilterService {
+    static final int DEFAULT_PORT = 8765;
+    static final int MAX_BODY_BYTES = 4 << 20;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Path file;
+    private final AtomicReference<FilteredWordsFile> filters;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failedReloads = new LongAdder();
+    private final FilterReplay.LatencyHistogram messageLatency = new FilterReplay.LatencyHistogram();
+    private final FilterReplay.LatencyHistogram requestLatency = new FilterReplay.LatencyHistogram();
+
+    FilterService(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.filters = new AtomicReference<>(FilteredWordsFile.read(this.file));
+    }
+
+    public static void main(String[] args) {
+        String output = FilterGenerator.OUTPUT_FILE;
+        int port = DEFAULT_PORT;
+        String bind = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-o": case "--output": output = args[++i]; break;
+                    case "--port": port = Integer.parseInt(args[++i]); break;
+                    case "--bind": bind = args[++i]; break;
+                    default: throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: java FilterService [-o FilteredWords.yml] [--port 8765] [--bind 127.0.0.1]");
+            System.exit(2);
+            return;
+        }
+
+        try {
+            FilterService service = new FilterService(Paths.get(output));
+            InetAddress address = bind == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind);
+            HttpServer server = service.start(new InetSocketAddress(address, port));
+            System.out.println("Serving " + service.filters.get().size() + " filters from " + output + " on http://"
+                    + address.getHostAddress() + ":" + server.getAddress().getPort() + " ("
+                    + (virtualThreads() ? "virtual threads" : "thread pool") + ")");
+            service.watch();
+        } catch (IOException e) {
+            System.err.println("Cannot serve " + output + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    HttpServer start(InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/check", this::check);
+        server.createContext("/metrics", this::metrics);
+        server.setExecutor(requestExecutor());
+        server.start();
+        return server;
+    }
+
+    // ---- Requests ----
+
+    private void check(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "use POST with one message per line\n");
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                rejected.increment();
+                respond(exchange, 413, "more than " + MAX_BODY_BYTES + " bytes\n");
+                return;
+            }
+            long start = System.nanoTime();
+            // One set for the whole batch, even if a reload lands halfway through it.
+            FilteredWordsFile set = filters.get();
+            FilterReplay.LatencyHistogram latency = new FilterReplay.LatencyHistogram();
+            StringBuilder answer = new StringBuilder();
+            int blockedHere = 0;
+            String text = new String(body, StandardCharsets.UTF_8);
+            for (String message : text.isEmpty() ? new String[0] : text.split("\r?\n")) {
+                long messageStart = System.nanoTime();
+                int filter = set.firstBlocking(message);
+                latency.record(System.nanoTime() - messageStart);
+                if (filter < 0) {
+                    answer.append("allowed\n");
+                } else {
+                    blockedHere++;
+                    answer.append("blocked\t").append(set.titles.get(filter)).append('\n');
+                }
+            }
+            requests.increment();
+            messages.add(latency.total);
+            blocked.add(blockedHere);
+            synchronized (messageLatency) {
+                messageLatency.add(latency);
+            }
+            synchronized (requestLatency) {
+                requestLatency.record(System.nanoTime() - start);
+            }
+            respond(exchange, 200, answer.toString());
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, "use GET\n");
+                return;
+            }
+            respond(exchange, 200, metricsText());
+        }
+    }
+
+    String metricsText() {
+        FilteredWordsFile set = filters.get();
+        double uptime = (System.nanoTime() - startNanos) / 1e9;
+        StringBuilder sb = new StringBuilder();
+        line(sb, "filterservice_filters", set.size());
+        line(sb, "filterservice_exceptions", set.allowlist.words().size());
+        line(sb, "filterservice_reloads_total", reloads.sum());
+        line(sb, "filterservice_failed_reloads_total", failedReloads.sum());
+        line(sb, "filterservice_requests_total", requests.sum());
+        line(sb, "filterservice_rejected_requests_total", rejected.sum());
+        line(sb, "filterservice_messages_total", messages.sum());
+        line(sb, "filterservice_blocked_total", blocked.sum());
+        line(sb, "filterservice_uptime_seconds", uptime);
+        line(sb, "filterservice_messages_per_second", uptime == 0 ? 0 : messages.sum() / uptime);
+        synchronized (messageLatency) {
+            quantiles(sb, "filterservice_message_latency_seconds", messageLatency);
+        }
+        synchronized (requestLatency) {
+            quantiles(sb, "filterservice_request_latency_seconds", requestLatency);
+        }
+        return sb.toString();
+    }
+
+    private static void quantiles(StringBuilder sb, String name, FilterReplay.LatencyHistogram histogram) {
+        for (double q : QUANTILES) {
+            line(sb, name + "{quantile=\"" + q + "\"}", histogram.total == 0 ? 0 : histogram.percentile(q * 100) / 1e9);
+        }
+        line(sb, name + "_count", histogram.total);
+        line(sb, name + "_max", histogram.max / 1e9);
+    }
+
+    private static void line(StringBuilder sb, String name, double value) {
+        sb.append(name).append(' ').append(value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.9g", value)).append('\n');
+    }
+
+    // null when the body is larger than MAX_BODY_BYTES.
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) > 0; ) {
+            if (body.size() + n > MAX_BODY_BYTES) return null;
+            body.write(buffer, 0, n);
+        }
+        return body.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // ---- Threads ----
+
+    // Executors.newVirtualThreadPerTaskExecutor() is Java 21; on older JVMs requests share a cached pool.
+    static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    static boolean virtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // ---- Reload ----
+
+    // Blocks, reloading the file whenever it is replaced. Like WordListWatcher, a burst of writes to the file is one
+    // change: the reload waits until it has been quiet for DEBOUNCE_MILLIS, at most MAX_DELAY_MILLIS after the first
+    // event. Other files in the directory (logs, temp files) never delay it.
+    void watch() throws IOException {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.OVERFLOW);
+            while (true) {
+                WatchKey key = watchService.take();
+                long seen = System.nanoTime();
+                boolean changed = concerns(key);
+                if (!key.reset()) {
+                    System.err.println(file.getParent() + " is no longer accessible; reloading stopped");
+                    return;
+                }
+                if (!changed) continue;
+                long deadline = seen + TimeUnit.MILLISECONDS.toNanos(WordListWatcher.MAX_DELAY_MILLIS);
+                long quietUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WordListWatcher.DEBOUNCE_MILLIS);
+                while (true) {
+                    long wait = TimeUnit.NANOSECONDS.toMillis(Math.min(quietUntil, deadline) - System.nanoTime());
+                    if (wait <= 0) break;
+                    WatchKey more = watchService.poll(wait, TimeUnit.MILLISECONDS);
+                    if (more == null) break;
+                    if (concerns(more)) {
+                        quietUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WordListWatcher.DEBOUNCE_MILLIS);
+                    }
+                    more.reset();
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down.
+        }
+    }
+
+    private boolean concerns(WatchKey key) {
+        boolean concerns = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            concerns |= event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context());
+        }
+        return concerns;
+    }
+
+    void reload() {
+        long start = System.nanoTime();
+        try {
+            FilteredWordsFile loaded = FilteredWordsFile.read(file);
+            filters.set(loaded);
+            reloads.increment();
+            System.out.printf(Locale.ROOT, "Reloaded %d filters from %s in %.1f ms%n", loaded.size(), file,
+                    (System.nanoTime() - start) / 1e6);
+        } catch (IOException | RuntimeException e) {
+            failedReloads.increment();
+            System.err.println("Keeping the previous filters, cannot reload " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterSet
+// The compiled result of one word list and one FilterOptions: entries, filters, patterns, pre-screen, exceptions.
+// Note:
+// Immutable once built, so any number of chat threads can match against it without locking; java.util.regex
+// Patterns are thread-safe and each call makes its own Matcher. The word list is copied before generating, so a
+// caller may keep editing its own list while a build runs. A message is matched the way the plugin would:
+// only the pre-screen candidates run, and a match lying inside an allowed word does not count. With
+// FilterOptions.stripColors a colored message is first matched with its color codes removed, as the "strip:"
+// section asks, which is short and cheap; only when that allows it is the message matched as written, so
+// stripping only adds hits and never hides one the message itself has.
+//======================================================================================================================
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class FilterSet {
+    public static final FilterSet EMPTY = build(List.of(), FilterOptions.DEFAULT);
+
+    private final FilterOptions options;
+    private final List<String> words;
+    private final List<String> entries;
+    private final List<FilterGenerator.GeneratedFilter> filters;
+    private final Pattern[] patterns;
+    private final PreScreen preScreen;
+    private final long buildNanos;
+
+    private FilterSet(FilterOptions options, List<String> words, List<String> entries,
+                      List<FilterGenerator.GeneratedFilter> filters, PreScreen preScreen, long buildNanos) {
+        this.options = options;
+        this.words = Collections.unmodifiableList(words);
+        this.entries = Collections.unmodifiableList(entries);
+        this.filters = Collections.unmodifiableList(filters);
+        this.patterns = new Pattern[filters.size()];
+        for (int f = 0; f < patterns.length; f++) patterns[f] = Pattern.compile(filters.get(f).regex);
+        this.preScreen = preScreen;
+        this.buildNanos = buildNanos;
+    }
+
+    public static FilterSet build(Iterable<String> lines, FilterOptions options) {
+        return build(lines, options, null);
+    }
+
+    // A shared RegexCache makes a rebuild after a small edit cost little more than the changed words.
+    static FilterSet build(Iterable<String> lines, FilterOptions options, RegexCache regexCache) {
+        long start = System.nanoTime();
+        List<String> words = new ArrayList<>();
+        lines.forEach(words::add);
+        List<String> entries = new ArrayList<>();
+        List<FilterGenerator.GeneratedFilter> filters = new ArrayList<>();
+        PreScreen.Builder preScreen = new PreScreen.Builder(options.confusables);
+        options.newGenerator().setRegexCache(regexCache).generate(words, entries::add, filter -> {
+            filters.add(filter);
+            preScreen.add(filter);
+        });
+        return new FilterSet(options, words, entries, filters, preScreen.build(), System.nanoTime() - start);
+    }
+
+    public FilterOptions options() {
+        return options;
+    }
+
+    // The lines this set was built from, comments and blanks included.
+    public List<String> words() {
+        return words;
+    }
+
+    // The YAML list items, exceptions included, exactly as FilteredWords.yml would hold them.
+    public List<String> entries() {
+        return entries;
+    }
+
+    public List<FilterGenerator.GeneratedFilter> filters() {
+        return filters;
+    }
+
+    public int size() {
+        return filters.size();
+    }
+
+    long buildNanos() {
+        return buildNanos;
+    }
+
+    public boolean matches(CharSequence message) {
+        String plain = plain(message);
+        return plain != null && blocks(plain) || blocks(message);
+    }
+
+    private boolean blocks(CharSequence message) {
+        BitSet candidates = preScreen.candidates(message);
+        if (candidates.isEmpty()) return false;
+        Allowlist.Coverage allowed = null;
+        for (int f = candidates.nextSetBit(0); f >= 0; f = candidates.nextSetBit(f + 1)) {
+            Matcher matcher = patterns[f].matcher(message);
+            while (matcher.find()) {
+                if (options.allowlist.isEmpty()) return true;
+                if (allowed == null) allowed = options.allowlist.coverage(message);
+                if (!allowed.covers(matcher.start(), matcher.end())) return true;
+            }
+        }
+        return false;
+    }
+
+    // Every filter with at least one match outside the allowed words, in filter order.
+    public List<FilterGenerator.GeneratedFilter> findAll(CharSequence message) {
+        BitSet found = new BitSet();
+        find(message, found);
+        String plain = plain(message);
+        if (plain != null) find(plain, found);
+        List<FilterGenerator.GeneratedFilter> result = new ArrayList<>();
+        for (int f = found.nextSetBit(0); f >= 0; f = found.nextSetBit(f + 1)) result.add(filters.get(f));
+        return result;
+    }
+
+    private void find(CharSequence message, BitSet found) {
+        BitSet candidates = preScreen.candidates(message);
+        Allowlist.Coverage allowed = null;
+        for (int f = candidates.nextSetBit(0); f >= 0; f = candidates.nextSetBit(f + 1)) {
+            if (found.get(f)) continue;
+            Matcher matcher = patterns[f].matcher(message);
+            while (matcher.find()) {
+                if (!options.allowlist.isEmpty()) {
+                    if (allowed == null) allowed = options.allowlist.coverage(message);
+                    if (allowed.covers(matcher.start(), matcher.end())) continue;
+                }
+                found.set(f);
+                break;
+            }
+        }
+    }
+
+    // The message without its color codes; null when nothing is stripped or there was nothing to strip.
+    private String plain(CharSequence message) {
+        if (!options.stripColors) return null;
+        String plain = FilterGenerator.COLOR_CODES.matcher(message).replaceAll("");
+        return plain.contentEquals(message) ? null : plain;
+    }
+
+    // Nothing is written for a set without filters, like the GUI's "nothing saved".
+    public boolean write(Path path) throws IOException {
+        if (filters.isEmpty()) return false;
+        FilterGenerator.writeFile(path.toString(), FilterGenerator.YAML_HEADER, entries);
+        return true;
+    }
+}
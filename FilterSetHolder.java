@@ -0,0 +1,105 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterSetHolder
+// The FilterSet a server is matching with right now, replaced in one step when the word list or options change.
+// Note:
+// Copy-on-write: readers call get() (one volatile read) and keep using that set for the whole message, so they
+// never lock and never see half a rebuild. rebuild() builds the new set on one background thread and swaps it in
+// when it is complete; a failed build leaves the current set in place. Requests that arrive while a build is
+// running are coalesced: only the newest queued one is built, the overtaken ones complete with the set in use.
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+public final class FilterSetHolder implements AutoCloseable {
+    private final AtomicReference<FilterSet> current;
+    private final AtomicLong latestRequest = new AtomicLong();
+    private final RegexCache regexCache;
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "FilterSet rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Consumer<FilterSet> onSwap = set -> { };
+
+    public FilterSetHolder() {
+        this(FilterSet.EMPTY);
+    }
+
+    public FilterSetHolder(FilterSet initial) {
+        this(initial, new RegexCache());
+    }
+
+    FilterSetHolder(FilterSet initial, RegexCache regexCache) {
+        this.current = new AtomicReference<>(initial);
+        this.regexCache = regexCache;
+    }
+
+    public FilterSet get() {
+        return current.get();
+    }
+
+    public boolean matches(CharSequence message) {
+        return current.get().matches(message);
+    }
+
+    // Called right after each swap (logging, saving FilteredWords.yml, metrics): on the rebuild thread for rebuild(),
+    // on the caller's thread for set().
+    public FilterSetHolder setOnSwap(Consumer<FilterSet> onSwap) {
+        this.onSwap = onSwap == null ? set -> { } : onSwap;
+        return this;
+    }
+
+    // Swaps in a set built elsewhere; returns the one it replaced.
+    public FilterSet set(FilterSet set) {
+        FilterSet previous = current.getAndSet(set);
+        onSwap.accept(set);
+        return previous;
+    }
+
+    // The lines are copied here, on the caller's thread, so the caller may keep editing its list.
+    public CompletableFuture<FilterSet> rebuild(Iterable<String> lines, FilterOptions options) {
+        List<String> snapshot = new ArrayList<>();
+        lines.forEach(snapshot::add);
+        long request = latestRequest.incrementAndGet();
+        CompletableFuture<FilterSet> result = new CompletableFuture<>();
+        try {
+            rebuilder.execute(() -> {
+                if (request != latestRequest.get()) {
+                    result.complete(current.get());
+                    return;
+                }
+                try {
+                    FilterSet built = FilterSet.build(snapshot, options, regexCache);
+                    // Only the patterns of the list in use stay cached, however long the server runs.
+                    regexCache.evictUnused();
+                    set(built);
+                    result.complete(built);
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // Rebuilds with the current options, e.g. after a moderator edited the list.
+    public CompletableFuture<FilterSet> rebuild(Iterable<String> lines) {
+        return rebuild(lines, current.get().options());
+    }
+
+    // Requests already queued still complete; later ones fail with RejectedExecutionException. The set in use
+    // stays readable.
+    @Override
+    public void close() {
+        rebuilder.shutdown();
+    }
+}
@@ -0,0 +1,120 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterTable
+// Loader and matcher for the DFA table written by FilterDfa (FilteredWords.dfa), for plugins we control.
+// Self-contained on purpose: this file can be copied into a plugin without the rest of the generator.
+// Note:
+// The transitions stay in the memory-mapped file; only the 64K symbol map is expanded on load. matches() reads
+// the mapping with absolute gets, so scanning a message allocates nothing and costs two table reads per character
+// and part. Windows keeps a mapped file locked until the mapping is collected: to pick up a new table, load the
+// new file and drop the old FilterTable instead of overwriting the mapped one in place.
+//======================================================================================================================
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class FilterTable {
+    static final int MAGIC = 0x53464454;
+    // 2: the per-symbol "collapsible separator" flags of version 1 are gone.
+    static final int VERSION = 2;
+    static final int BLOCKED = 0;
+
+    private final char[] symbolOf = new char[65536];
+    private final MappedByteBuffer table;
+    private final int parts;
+    private final int[] symbolCount;
+    private final int[] stateCount;
+    private final int[] start;
+    private final int[] symbolMapOffset;
+    private final int[] pendingOffset;
+    private final int[] transitionsOffset;
+    private final boolean[] narrow;
+
+    private FilterTable(MappedByteBuffer table) throws IOException {
+        this.table = table;
+        if (table.capacity() < 20 || table.getInt(0) != MAGIC || table.getInt(4) != VERSION) {
+            throw new IOException("not a filter table (or a different version)");
+        }
+        try {
+            parts = table.getInt(8);
+            int fileSymbols = table.getInt(12);
+            int ranges = table.getInt(16);
+            int offset = 20;
+            for (int r = 0; r < ranges; r++) {
+                int first = table.getChar(offset + r * 4);
+                int end = r + 1 < ranges ? table.getChar(offset + (r + 1) * 4) : 65536;
+                char symbol = table.getChar(offset + r * 4 + 2);
+                for (int c = first; c < end; c++) symbolOf[c] = symbol;
+            }
+            offset += ranges * 4;
+
+            symbolCount = new int[parts];
+            stateCount = new int[parts];
+            start = new int[parts];
+            symbolMapOffset = new int[parts];
+            pendingOffset = new int[parts];
+            transitionsOffset = new int[parts];
+            narrow = new boolean[parts];
+            for (int p = 0; p < parts; p++) {
+                symbolCount[p] = table.getInt(offset);
+                stateCount[p] = table.getInt(offset + 4);
+                start[p] = table.getInt(offset + 8);
+                symbolMapOffset[p] = offset + 12;
+                offset += 12 + fileSymbols * 2;
+                pendingOffset[p] = offset;
+                offset += stateCount[p];
+                narrow[p] = table.get(offset) == 2;
+                transitionsOffset[p] = offset + 1;
+                offset = Math.toIntExact(transitionsOffset[p] + (long) stateCount[p] * symbolCount[p] * (narrow[p] ? 2 : 4));
+            }
+            if (table.capacity() != offset) throw new IOException("truncated filter table");
+        } catch (IndexOutOfBoundsException | ArithmeticException e) {
+            throw new IOException("truncated filter table", e);
+        }
+    }
+
+    public static FilterTable load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new FilterTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public boolean matches(CharSequence message) {
+        for (int p = 0; p < parts; p++) {
+            if (matches(p, message)) return true;
+        }
+        return false;
+    }
+
+    private boolean matches(int part, CharSequence message) {
+        ByteBuffer t = table;
+        int symbols = symbolCount[part];
+        int map = symbolMapOffset[part];
+        int transitions = transitionsOffset[part];
+        boolean partNarrow = narrow[part];
+        int state = start[part];
+        int length = message.length();
+        for (int i = 0; i < length; ) {
+            int cp = Character.codePointAt(message, i);
+            i += Character.charCount(cp);
+            int symbol = t.getChar(map + (cp < 65536 ? symbolOf[cp] : 0) * 2);
+            int cell = state * symbols + symbol;
+            state = partNarrow ? t.getChar(transitions + cell * 2) : t.getInt(transitions + cell * 4);
+            if (state == BLOCKED) return true;
+        }
+        return t.get(pendingOffset[part] + state) != 0;
+    }
+
+    public int parts() {
+        return parts;
+    }
+
+    public int states() {
+        int states = 0;
+        for (int count : stateCount) states += count;
+        return states;
+    }
+}
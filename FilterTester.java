@@ -0,0 +1,116 @@
+//====================================================================================================================
+// Sparkkrye
+// FilterTester
+// Replays chat messages against every generated filter, in parallel across cores, without leaving the editor.
+// Note:
+// Patterns are compiled once and kept across edits; only filters whose regex changed are compiled again.
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+final class FilterTester {
+
+    static final class Match {
+        final int filter;
+        final int start;
+        final int end;
+
+        Match(int filter, int start, int end) {
+            this.filter = filter;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    static final class FilterStats {
+        final FilterGenerator.GeneratedFilter filter;
+        final long totalNanos;
+        final long maxNanos;
+        final int evaluations;
+        final int matchedMessages;
+
+        FilterStats(FilterGenerator.GeneratedFilter filter, long totalNanos, long maxNanos, int evaluations, int matchedMessages) {
+            this.filter = filter;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.evaluations = evaluations;
+            this.matchedMessages = matchedMessages;
+        }
+
+        long averageNanos() {
+            return evaluations == 0 ? 0 : totalNanos / evaluations;
+        }
+    }
+
+    static final class Result {
+        final List<String> messages;
+        final List<List<Match>> matches;
+        final List<FilterStats> stats;
+        final int suppressed;
+
+        Result(List<String> messages, List<List<Match>> matches, List<FilterStats> stats, int suppressed) {
+            this.messages = messages;
+            this.matches = matches;
+            this.stats = stats;
+            this.suppressed = suppressed;
+        }
+    }
+
+    private final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+    Result run(List<FilterGenerator.GeneratedFilter> filters, List<String> messages) {
+        return run(filters, messages, Allowlist.EMPTY);
+    }
+
+    // Matches lying inside an allowed word are dropped and only counted, as a plugin would do with the exceptions.
+    Result run(List<FilterGenerator.GeneratedFilter> filters, List<String> messages, Allowlist allowlist) {
+        Pattern[] compiled = new Pattern[filters.size()];
+        for (int f = 0; f < compiled.length; f++) {
+            compiled[f] = patterns.computeIfAbsent(filters.get(f).regex, Pattern::compile);
+        }
+        patterns.keySet().retainAll(filters.stream().map(f -> f.regex).collect(Collectors.toSet()));
+
+        AtomicLongArray total = new AtomicLongArray(compiled.length);
+        AtomicLongArray max = new AtomicLongArray(compiled.length);
+        AtomicLongArray matched = new AtomicLongArray(compiled.length);
+        AtomicInteger suppressed = new AtomicInteger();
+
+        List<List<Match>> matches = IntStream.range(0, messages.size()).parallel().mapToObj(m -> {
+            String message = messages.get(m);
+            Allowlist.Coverage allowed = allowlist.isEmpty() ? null : allowlist.coverage(message);
+            List<Match> found = new ArrayList<>();
+            for (int f = 0; f < compiled.length; f++) {
+                long start = System.nanoTime();
+                Matcher matcher = compiled[f].matcher(message);
+                boolean hit = false;
+                while (matcher.find()) {
+                    if (allowed != null && allowed.covers(matcher.start(), matcher.end())) {
+                        suppressed.incrementAndGet();
+                        continue;
+                    }
+                    hit = true;
+                    found.add(new Match(f, matcher.start(), matcher.end()));
+                }
+                long elapsed = System.nanoTime() - start;
+                total.addAndGet(f, elapsed);
+                max.accumulateAndGet(f, elapsed, Math::max);
+                if (hit) matched.incrementAndGet(f);
+            }
+            return found;
+        }).collect(Collectors.toList());
+
+        List<FilterStats> stats = new ArrayList<>();
+        for (int f = 0; f < compiled.length; f++) {
+            stats.add(new FilterStats(filters.get(f), total.get(f), max.get(f), messages.size(), (int) matched.get(f)));
+        }
+        return new Result(messages, matches, stats, suppressed.get());
+    }
+}
@@ -0,0 +1,132 @@
+//====================================================================================================================
+// Sparkkrye
+// FilteredWordsFile
+// A FilteredWords.yml read back from disk: its filters compiled in order, plus the "strip:" and "exceptions:" sections.
+// Note:
+// Reads what FilterGenerator writes, in both styles ("- regex,§cx" and "'regex,§cx'") and at any indentation.
+// A "# title" line names the entry after it; without titles an entry is named by its position. A message is
+// decided like the plugin does: blocked by the first filter with a match outside the allowed words. With a "strip:"
+// section the message without what that pattern matches is tried first (it is shorter), then the message as written.
+//======================================================================================================================
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public final class FilteredWordsFile {
+    public final Path path;
+    public final List<String> titles;
+    public final List<String> regexes;
+    public final Allowlist allowlist;
+    private final Pattern[] patterns;
+    private final Pattern strip;
+
+    private FilteredWordsFile(Path path, List<String> titles, List<String> regexes, Pattern[] patterns,
+                              Allowlist allowlist, Pattern strip) {
+        this.path = path;
+        this.titles = Collections.unmodifiableList(titles);
+        this.regexes = Collections.unmodifiableList(regexes);
+        this.patterns = patterns;
+        this.allowlist = allowlist;
+        this.strip = strip;
+    }
+
+    public static FilteredWordsFile read(Path path) throws IOException {
+        List<String> titles = new ArrayList<>();
+        List<String> regexes = new ArrayList<>();
+        List<Pattern> patterns = new ArrayList<>();
+        List<String> exceptions = new ArrayList<>();
+        Pattern strip = null;
+        String section = null;
+        String title = null;
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String text = line.trim();
+            if (text.isEmpty()) continue;
+            if (text.equals(FilterGenerator.YAML_HEADER) || text.equals(FilterGenerator.EXCEPTIONS_HEADER)
+                    || text.equals(FilterGenerator.STRIP_HEADER)) {
+                section = text;
+                title = null;
+                continue;
+            }
+            if (text.startsWith("#")) {
+                title = text.substring(1).trim();
+                continue;
+            }
+            if (section == null) {
+                throw new IOException(path + ":" + lineNumber + ": expected '" + FilterGenerator.YAML_HEADER + "'");
+            }
+            String value = value(text);
+            if (value == null) throw new IOException(path + ":" + lineNumber + ": not a list entry");
+            if (section.equals(FilterGenerator.EXCEPTIONS_HEADER)) {
+                exceptions.add(value);
+                continue;
+            }
+            boolean stripSection = section.equals(FilterGenerator.STRIP_HEADER);
+            String regex = !stripSection && value.endsWith(FilterGenerator.COMMON_YAML_SUFFIX)
+                    ? value.substring(0, value.length() - FilterGenerator.COMMON_YAML_SUFFIX.length())
+                    : value;
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IOException(path + ":" + lineNumber + ": " + e.getDescription(), e);
+            }
+            if (stripSection) {
+                strip = pattern;
+                continue;
+            }
+            patterns.add(pattern);
+            titles.add(title != null ? title : "entry " + (regexes.size() + 1));
+            regexes.add(regex);
+            title = null;
+        }
+        return new FilteredWordsFile(path, titles, regexes, patterns.toArray(new Pattern[0]), Allowlist.of(exceptions),
+                strip);
+    }
+
+    // "- x" or "'x'" (with '' for a quote, as YAML has it); null for anything else.
+    private static String value(String text) {
+        if (text.startsWith("- ")) return text.substring(2);
+        if (text.length() >= 2 && text.startsWith("'") && text.endsWith("'")) {
+            return text.substring(1, text.length() - 1).replace("''", "'");
+        }
+        return null;
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+
+    // Index of the filter that blocks the message, -1 when it is allowed.
+    public int firstBlocking(CharSequence message) {
+        if (strip != null) {
+            String plain = strip.matcher(message).replaceAll("");
+            if (!plain.contentEquals(message)) {
+                int filter = firstBlockingAsWritten(plain);
+                if (filter >= 0) return filter;
+            }
+        }
+        return firstBlockingAsWritten(message);
+    }
+
+    private int firstBlockingAsWritten(CharSequence message) {
+        Allowlist.Coverage allowed = null;
+        for (int f = 0; f < patterns.length; f++) {
+            Matcher matcher = patterns[f].matcher(message);
+            while (matcher.find()) {
+                if (allowlist.isEmpty()) return f;
+                if (allowed == null) allowed = allowlist.coverage(message);
+                if (!allowed.covers(matcher.start(), matcher.end())) return f;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,285 @@
+//====================================================================================================================
+// Sparkkrye
+// IncrementalSaver
+// Saves one generated file atomically and remembers what it saved, so an unchanged save costs almost nothing.
+// Note:
+// Entries go to a temp file in the target's directory and are moved over the target in one step, so a plugin that
+// hot-reloads the file never sees it half written. The hash of the inputs (words + options) and of the written bytes
+// is kept per session: same inputs and an untouched file skip generation, identical bytes skip the move.
+//======================================================================================================================
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+final class IncrementalSaver {
+
+    enum Status { WRITTEN, UNCHANGED, SKIPPED, EMPTY, REFUSED }
+
+    static final class Report {
+        final Status status;
+        final int entries;
+        final int added;
+        final int removed;
+        final long bytes;
+        final long nanos;
+
+        Report(Status status, int entries, int added, int removed, long bytes, long nanos) {
+            this.status = status;
+            this.entries = entries;
+            this.added = added;
+            this.removed = removed;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+    }
+
+    interface EntryWriter {
+        void write(Consumer<String> sink) throws IOException;
+    }
+
+    interface ContentWriter {
+        void write(BufferedWriter writer) throws IOException;
+    }
+
+    interface BinaryWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final Path target;
+    private byte[] inputDigest;
+    private byte[] outputDigest;
+    private long[] entryHashes = new long[0];
+    private long savedSize = -1;
+    private FileTime savedTime;
+
+    IncrementalSaver(Path target) {
+        this.target = target;
+    }
+
+    // True when the inputs match the last save and nobody touched the file since.
+    synchronized boolean isUpToDate(byte[] inputs) {
+        return Arrays.equals(inputs, inputDigest) && fileUnchanged();
+    }
+
+    synchronized Report save(byte[] inputs, String header, Iterable<String> entries) throws IOException {
+        return save(inputs, header, sink -> entries.forEach(sink), () -> true);
+    }
+
+    // commit is asked after every entry was generated; returning false discards the temp file (REFUSED).
+    synchronized Report save(byte[] inputs, String header, EntryWriter entries, BooleanSupplier commit) throws IOException {
+        long start = System.nanoTime();
+        if (isUpToDate(inputs)) {
+            return new Report(Status.SKIPPED, entryHashes.length, 0, 0, 0, System.nanoTime() - start);
+        }
+
+        Path tmp = tempFile(target);
+        MessageDigest digest = sha256();
+        EntryHashes hashes = new EntryHashes();
+        long bytes;
+        try {
+            CountingOutputStream counter = new CountingOutputStream(new DigestOutputStream(Files.newOutputStream(tmp), digest));
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8))) {
+                writer.write(header);
+                writer.newLine();
+                writer.newLine();
+                entries.write(entry -> {
+                    try {
+                        writer.write(entry);
+                        writer.newLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    hashes.add(hash(entry));
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            bytes = counter.count;
+            if (hashes.size == 0 || !commit.getAsBoolean()) {
+                Files.deleteIfExists(tmp);
+                return new Report(hashes.size == 0 ? Status.EMPTY : Status.REFUSED, hashes.size, 0, 0, 0, System.nanoTime() - start);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        long[] sorted = hashes.sorted();
+        int added = difference(sorted, entryHashes);
+        int removed = difference(entryHashes, sorted);
+        byte[] output = digest.digest();
+
+        Status status;
+        if (sameAsTarget(output, bytes)) {
+            Files.delete(tmp);
+            status = Status.UNCHANGED;
+            bytes = 0;
+        } else {
+            sync(tmp);
+            moveIntoPlace(tmp, target);
+            status = Status.WRITTEN;
+        }
+        inputDigest = inputs;
+        outputDigest = output;
+        entryHashes = sorted;
+        savedSize = Files.size(target);
+        savedTime = Files.getLastModifiedTime(target);
+        return new Report(status, sorted.length, added, removed, bytes, System.nanoTime() - start);
+    }
+
+    // Writes the whole file through a temp file and an atomic move, for files that are not tracked (words.txt).
+    static void writeAtomically(Path target, ContentWriter content) throws IOException {
+        writeBinaryAtomically(target, out -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            content.write(writer);
+            writer.flush();
+        });
+    }
+
+    static void writeBinaryAtomically(Path target, BinaryWriter content) throws IOException {
+        Path tmp = tempFile(target);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                content.write(out);
+            }
+            sync(tmp);
+            moveIntoPlace(tmp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    // Not created through Files.createTempFile: its owner-only permissions would end up on the moved file.
+    static Path tempFile(Path target) {
+        Path dir = target.toAbsolutePath().getParent();
+        return dir.resolve("." + target.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+    }
+
+    // Falls back to a plain replace on file systems without atomic rename (some network shares).
+    static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Hash of everything a generated file depends on: the word lines in order plus the generator options.
+    static byte[] digest(Iterable<String> lines, String options) {
+        MessageDigest digest = sha256();
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        for (String line : lines) {
+            digest.update((byte) '\n');
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return digest.digest();
+    }
+
+    // The first save of a session compares against the file on disk, later ones against the remembered digest.
+    private boolean sameAsTarget(byte[] output, long bytes) throws IOException {
+        if (outputDigest != null && fileUnchanged()) return Arrays.equals(output, outputDigest);
+        if (!Files.exists(target) || Files.size(target) != bytes) return false;
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(target), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return Arrays.equals(output, digest.digest());
+    }
+
+    private boolean fileUnchanged() {
+        try {
+            return savedTime != null && Files.size(target) == savedSize && Files.getLastModifiedTime(target).equals(savedTime);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void sync(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // How many values of a (sorted, with repeats) have no partner left in b.
+    private static int difference(long[] a, long[] b) {
+        int missing = 0;
+        int j = 0;
+        for (long value : a) {
+            while (j < b.length && b[j] < value) j++;
+            if (j < b.length && b[j] == value) {
+                j++;
+            } else {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    // 64-bit FNV-1a; only used to count changed entries, never to decide what is written.
+    private static long hash(String entry) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < entry.length(); i++) {
+            h ^= entry.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class EntryHashes {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long hash) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = hash;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+//====================================================================================================================
+// Sparkkrye
+// LivePreview
+// What the GUI's live preview was built from, kept so the next edit only regenerates the lines that changed.
+// Note:
+// Only for a generator that isLineLocal(): every words.txt line keeps its filters (their YAML lines, letter classes
+// and the allowlist words each one matches) while the options stay the same; unchanged lines at the start and end
+// of the list are reused as they are. The redundancy result is kept while the entries that changed are isolated (SubsumptionAnalyzer.isIsolated),
+// otherwise the whole list is analyzed again.
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+final class LivePreview {
+    // Past this many changed entries (a paste, a large undo) analyzing the list again is cheaper than the check.
+    private static final int MAX_ISOLATION_CHECK = 64;
+
+    static final class Filter {
+        final String variant;
+        final FilterGenerator.GeneratedFilter filter;
+        final List<String> allowed;
+        final List<String> yaml = new ArrayList<>();
+        private final String entry;
+        private final String key;
+
+        // variant is null for a filter of a list generated in one go (FilterGenerator.forEachFilter).
+        Filter(String variant, FilterGenerator.GeneratedFilter filter, FilterGenerator generator) {
+            this.variant = variant;
+            this.filter = filter;
+            this.allowed = filter == null ? List.of() : allowed(filter, generator.getAllowlist());
+            this.entry = filter == null ? null : filter.strong ? "!" + filter.title : filter.title;
+            this.key = filter == null ? null : SubsumptionAnalyzer.keyOf(entry, generator.getConfusables());
+            if (filter != null) generator.appendEntry(filter, yaml::add);
+        }
+    }
+
+    final String options;
+    final List<String> input;
+    final List<Filter> filters;
+    final SubsumptionAnalyzer.Result redundancy;
+    private final List<List<Filter>> lines;
+
+    private LivePreview(String options, List<String> input, List<List<Filter>> lines, List<Filter> filters,
+                        SubsumptionAnalyzer.Result redundancy) {
+        this.options = options;
+        this.input = input;
+        this.lines = lines;
+        this.filters = filters;
+        this.redundancy = redundancy;
+    }
+
+    // options identifies everything besides the words that the preview depends on (FilterGenerator.describeOptions
+    // plus whatever the caller adds); a different value starts over.
+    static LivePreview update(LivePreview previous, String options, List<String> input, FilterGenerator generator,
+                              BooleanSupplier cancelled) {
+        boolean reuse = previous != null && previous.options.equals(options);
+        int head = 0;
+        int tail = 0;
+        if (reuse) {
+            int common = Math.min(previous.input.size(), input.size());
+            while (head < common && previous.input.get(head).equals(input.get(head))) head++;
+            while (tail < common - head && previous.input.get(previous.input.size() - 1 - tail)
+                    .equals(input.get(input.size() - 1 - tail))) tail++;
+        }
+
+        IntStream changed = IntStream.range(head, input.size() - tail);
+        List<List<Filter>> lines = new ArrayList<>(input.size());
+        if (reuse) lines.addAll(previous.lines.subList(0, head));
+        lines.addAll((FilterGenerator.PARALLEL ? changed.parallel() : changed).mapToObj(i -> {
+            if (cancelled.getAsBoolean()) throw new CancellationException();
+            return filtersOf(input.get(i), generator);
+        }).collect(Collectors.toList()));
+        if (reuse) lines.addAll(previous.lines.subList(previous.lines.size() - tail, previous.lines.size()));
+
+        // The same de-duplication as FilterGenerator.forEachWord, over the whole list.
+        boolean gender = generator.isGenderVariants();
+        Set<String> seen = new HashSet<>();
+        List<Filter> filters = new ArrayList<>();
+        for (List<Filter> line : lines) {
+            for (Filter f : line) {
+                if (gender && !seen.add(f.variant)) continue;
+                if (f.filter != null) filters.add(f);
+            }
+        }
+
+        SubsumptionAnalyzer.Result redundancy = reuse && isolated(previous.filters, filters)
+                ? previous.redundancy
+                : SubsumptionAnalyzer.analyze(input, gender, generator.getConfusables());
+        return new LivePreview(options, new ArrayList<>(input), lines, filters, redundancy);
+    }
+
+    // The allowlist words a filter finds a match in, i.e. the ones its exception lets through.
+    private static List<String> allowed(FilterGenerator.GeneratedFilter filter, Allowlist allowlist) {
+        if (allowlist.isEmpty()) return List.of();
+        Pattern pattern = Pattern.compile(filter.regex);
+        List<String> allowed = new ArrayList<>();
+        for (String word : allowlist.words()) {
+            if (pattern.matcher(word).find()) allowed.add(word);
+        }
+        return allowed;
+    }
+
+    private static List<Filter> filtersOf(String line, FilterGenerator generator) {
+        List<Filter> filters = new ArrayList<>();
+        for (String variant : FilterGenerator.variantsOf(line, generator.isGenderVariants())) {
+            filters.add(new Filter(variant, generator.filterOf(variant), generator));
+        }
+        return filters;
+    }
+
+    // Compares the entry sequences the way the input lines are compared: only the part between the common start
+    // and end changed.
+    private static boolean isolated(List<Filter> before, List<Filter> after) {
+        int common = Math.min(before.size(), after.size());
+        int head = 0;
+        while (head < common && before.get(head).entry.equals(after.get(head).entry)) head++;
+        int tail = 0;
+        while (tail < common - head
+                && before.get(before.size() - 1 - tail).entry.equals(after.get(after.size() - 1 - tail).entry)) tail++;
+
+        List<Filter> removed = before.subList(head, before.size() - tail);
+        List<Filter> added = after.subList(head, after.size() - tail);
+        if (removed.size() + added.size() > MAX_ISOLATION_CHECK) return false;
+        return allIsolated(removed, before) && allIsolated(added, after);
+    }
+
+    private static boolean allIsolated(List<Filter> changed, List<Filter> list) {
+        if (changed.isEmpty()) return true;
+        List<String> entries = new ArrayList<>(list.size());
+        List<String> keys = new ArrayList<>(list.size());
+        for (Filter f : list) {
+            entries.add(f.entry);
+            keys.add(f.key);
+        }
+        for (Filter f : changed) {
+            if (!SubsumptionAnalyzer.isIsolated(f.entry, f.key, entries, keys)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,302 @@
+//====================================================================================================================
+// Sparkkrye
+// PreScreen
+// Cheap test that rules out most clean messages before any generated filter runs (FilteredWords.prescreen).
+// Note:
+// Every letter of a filter is a '[class]+' (or a sequence such as "ph"), so a message can only match when, for each
+// letter, it contains at least one character of that class. A filter's signature is that set of letters (for a
+// folded or combined filter, the letters all of its words share). One pass over the message collects the letters
+// present; a filter is a candidate when its signature is covered. The gatekeeper is one character class picked so
+// that every signature contains one of its letters: a message with none of those characters matches nothing.
+// Bigrams of adjacent characters are not used: separators, repeats and color codes may sit between two letters.
+// File format (UTF-8 text, one record per line, characters as hex code points):
+//   gatekeeper <bit> <bit> ...    letters of the gatekeeper; absent when some filter has an empty signature
+//   letter <hex> <hex> ...        characters that stand for letter bit 0, 1, ...
+//   filter <bit> <bit> ...        signature of entry 0, 1, ... of FilteredWords.yml
+//======================================================================================================================
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class PreScreen {
+    static final String EXTENSION = ".prescreen";
+
+    private final char[] maskOf = new char[65536];
+    private final long[][] masks;
+    private final String[] letters;
+    private final long[][] signatures;
+    private final long[] gatekeeper;
+    private final int width;
+
+    private PreScreen(String[] letters, List<int[]> signatures, int[] gatekeeper) {
+        this.letters = letters;
+        width = Math.max(1, (letters.length + 63) / 64);
+
+        // Characters accepting the same letters share one mask, like Confusables' reverse map.
+        long[][] byChar = new long[65536][];
+        for (int bit = 0; bit < letters.length; bit++) {
+            for (char c : letters[bit].toCharArray()) {
+                if (byChar[c] == null) byChar[c] = new long[width];
+                byChar[c][bit >>> 6] |= 1L << bit;
+            }
+        }
+        Map<String, Character> ids = new LinkedHashMap<>();
+        List<long[]> distinct = new ArrayList<>();
+        distinct.add(new long[width]);
+        for (int c = 0; c < 65536; c++) {
+            if (byChar[c] == null) continue;
+            String key = Arrays.toString(byChar[c]);
+            Character id = ids.get(key);
+            if (id == null) {
+                id = (char) distinct.size();
+                ids.put(key, id);
+                distinct.add(byChar[c]);
+            }
+            maskOf[c] = id;
+        }
+        masks = distinct.toArray(new long[0][]);
+
+        this.signatures = new long[signatures.size()][];
+        for (int f = 0; f < signatures.size(); f++) this.signatures[f] = bits(signatures.get(f));
+        this.gatekeeper = gatekeeper == null ? null : bits(gatekeeper);
+    }
+
+    // ---- Building ----
+
+    static final class Builder {
+        private final Confusables confusables;
+        private final Map<Character, Integer> bitOf = new LinkedHashMap<>();
+        private final List<String> letters = new ArrayList<>();
+        private final List<int[]> signatures = new ArrayList<>();
+        private final Map<String, int[]> interned = new HashMap<>();
+
+        Builder(Confusables confusables) {
+            this.confusables = confusables;
+        }
+
+        // Filters must be added in the order their entries are written.
+        Builder add(FilterGenerator.GeneratedFilter filter) {
+            BitSet shared = null;
+            for (String word : filter.words) {
+                BitSet required = new BitSet();
+                for (char c : word.toCharArray()) {
+                    if (c != Separators.WORD_GAP) required.set(bitOf(c));
+                }
+                if (shared == null) {
+                    shared = required;
+                } else {
+                    shared.and(required);
+                }
+            }
+            int[] signature = shared == null ? new int[0] : shared.stream().toArray();
+            signatures.add(interned.computeIfAbsent(Arrays.toString(signature), k -> signature));
+            return this;
+        }
+
+        PreScreen build() {
+            return new PreScreen(letters.toArray(new String[0]), signatures, gatekeeper());
+        }
+
+        private int bitOf(char letter) {
+            Integer bit = bitOf.get(letter);
+            if (bit != null) return bit;
+            StringBuilder chars = new StringBuilder();
+            for (int c = 0; c < 65536; c++) {
+                if (confusables.accepts(letter, (char) c)) chars.append((char) c);
+            }
+            // A sequence ("ph" for 'f') needs its first character, in either ASCII case under (?i).
+            for (String seq : confusables.sequencesOf(letter)) {
+                char first = seq.charAt(0);
+                String folds = first < 128 ? "" + Character.toLowerCase(first) + Character.toUpperCase(first) : "" + first;
+                for (char folded : folds.toCharArray()) {
+                    if (chars.indexOf(Character.toString(folded)) < 0) chars.append(folded);
+                }
+            }
+            bit = letters.size();
+            letters.add(chars.toString());
+            bitOf.put(letter, bit);
+            return bit;
+        }
+
+        // Greedy hitting set: keep taking the letter found in most signatures that no chosen letter covers yet.
+        private int[] gatekeeper() {
+            List<int[]> open = new ArrayList<>();
+            for (int[] signature : signatures) {
+                if (signature.length == 0) return null;
+                open.add(signature);
+            }
+            BitSet chosen = new BitSet();
+            while (!open.isEmpty()) {
+                int[] counts = new int[letters.size()];
+                for (int[] signature : open) {
+                    for (int bit : signature) counts[bit]++;
+                }
+                int best = 0;
+                for (int bit = 1; bit < counts.length; bit++) {
+                    if (counts[bit] > counts[best]) best = bit;
+                }
+                chosen.set(best);
+                int b = best;
+                open.removeIf(signature -> Arrays.stream(signature).anyMatch(bit -> bit == b));
+            }
+            return chosen.stream().toArray();
+        }
+    }
+
+    // ---- Matching ----
+
+    public int size() {
+        return signatures.length;
+    }
+
+    // False means no filter can match the message.
+    public boolean mayMatch(CharSequence message) {
+        long[] present = present(message);
+        if (gatekeeper != null && !intersects(present, gatekeeper)) return false;
+        for (long[] signature : signatures) {
+            if (covers(present, signature)) return true;
+        }
+        return false;
+    }
+
+    // Indexes of the entries whose signature the message covers; only those need their regex run.
+    public BitSet candidates(CharSequence message) {
+        long[] present = present(message);
+        BitSet candidates = new BitSet(signatures.length);
+        if (gatekeeper != null && !intersects(present, gatekeeper)) return candidates;
+        for (int f = 0; f < signatures.length; f++) {
+            if (covers(present, signatures[f])) candidates.set(f);
+        }
+        return candidates;
+    }
+
+    // The gatekeeper as one regex, for consumers that can only run patterns; null when it would accept everything.
+    public String gatekeeperRegex() {
+        if (gatekeeper == null) return null;
+        StringBuilder sb = new StringBuilder("[");
+        for (int bit = 0; bit < letters.length; bit++) {
+            if ((gatekeeper[bit >>> 6] & (1L << bit)) == 0) continue;
+            for (char c : letters[bit].toCharArray()) {
+                if (c < 128 && Character.isLetterOrDigit(c)) {
+                    sb.append(c);
+                } else {
+                    sb.append("\\x{").append(Integer.toHexString(c)).append('}');
+                }
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private long[] present(CharSequence message) {
+        long[] present = new long[width];
+        int last = 0;
+        for (int i = 0; i < message.length(); i++) {
+            int id = maskOf[message.charAt(i)];
+            if (id == 0 || id == last) continue;
+            last = id;
+            long[] mask = masks[id];
+            for (int w = 0; w < width; w++) present[w] |= mask[w];
+        }
+        return present;
+    }
+
+    private static boolean covers(long[] present, long[] signature) {
+        for (int w = 0; w < signature.length; w++) {
+            if ((signature[w] & ~present[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean intersects(long[] present, long[] set) {
+        for (int w = 0; w < set.length; w++) {
+            if ((set[w] & present[w]) != 0) return true;
+        }
+        return false;
+    }
+
+    private long[] bits(int[] letterBits) {
+        long[] bits = new long[width];
+        for (int bit : letterBits) bits[bit >>> 6] |= 1L << bit;
+        return bits;
+    }
+
+    // ---- File ----
+
+    void write(Path path) throws IOException {
+        IncrementalSaver.writeAtomically(path, writer -> {
+            if (gatekeeper != null) line(writer, "gatekeeper" + bitList(gatekeeper));
+            for (String chars : letters) {
+                StringBuilder sb = new StringBuilder("letter");
+                for (char c : chars.toCharArray()) sb.append(' ').append(Integer.toHexString(c));
+                line(writer, sb.toString());
+            }
+            for (long[] signature : signatures) line(writer, "filter" + bitList(signature));
+        });
+    }
+
+    private String bitList(long[] bits) {
+        StringBuilder sb = new StringBuilder();
+        for (int bit = 0; bit < letters.length; bit++) {
+            if ((bits[bit >>> 6] & (1L << bit)) != 0) sb.append(' ').append(bit);
+        }
+        return sb.toString();
+    }
+
+    public static PreScreen load(Path path) throws IOException {
+        List<String> letters = new ArrayList<>();
+        List<int[]> signatures = new ArrayList<>();
+        int[] gatekeeper = null;
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String[] fields = line.trim().split(" ");
+            try {
+                switch (fields[0]) {
+                    case "gatekeeper":
+                        gatekeeper = numbers(fields);
+                        break;
+                    case "letter":
+                        StringBuilder chars = new StringBuilder();
+                        for (int i = 1; i < fields.length; i++) chars.append((char) Integer.parseInt(fields[i], 16));
+                        letters.add(chars.toString());
+                        break;
+                    case "filter":
+                        signatures.add(numbers(fields));
+                        break;
+                    default:
+                        if (!line.trim().isEmpty()) throw new IOException(path + ":" + lineNumber + ": unknown record");
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        List<int[]> records = new ArrayList<>(signatures);
+        if (gatekeeper != null) records.add(gatekeeper);
+        for (int[] record : records) {
+            for (int bit : record) {
+                if (bit < 0 || bit >= letters.size()) throw new IOException(path + ": letter " + bit + " is not defined");
+            }
+        }
+        return new PreScreen(letters.toArray(new String[0]), signatures, gatekeeper);
+    }
+
+    private static int[] numbers(String[] fields) {
+        int[] numbers = new int[fields.length - 1];
+        for (int i = 1; i < fields.length; i++) numbers[i - 1] = Integer.parseInt(fields[i]);
+        return numbers;
+    }
+
+    private static void line(BufferedWriter writer, String text) throws IOException {
+        writer.write(text);
+        writer.newLine();
+    }
+}
@@ -0,0 +1,184 @@
+//====================================================================================================================
+// Sparkkrye
+// RegexCache
+// Generated patterns by cache key, kept in memory for the session and in FilteredWords.cache across restarts.
+// Note:
+// Entries are content-addressed: the key (word or chunk, mode and every option the pattern depends on, see
+// FilterGenerator.cachePrefix) is reduced to a 128-bit hash made of two independent 64-bit ones. Not SHA-256:
+// at 100k words hashing the keys cost more than a cold start saves. The file header holds VERSION and
+// a fingerprint of the built-in regex fragments and variant table, so a generator that would render differently
+// starts from an empty cache instead of reusing stale patterns. Quotes, indentation and titles are applied after
+// the lookup, so toggling them never regenerates a pattern.
+//======================================================================================================================
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+final class RegexCache {
+    static final String FILE = "FilteredWords.cache";
+    static final int MAGIC = 0x53465243;
+    static final int VERSION = 1;
+    // Above this size only the entries used in this session are written back.
+    static final int MAX_ENTRIES = 500_000;
+
+    private static final class Key {
+        final long high;
+        final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).high == high && ((Key) o).low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high ^ low);
+        }
+    }
+
+    private static final class Entry {
+        final String regex;
+        volatile boolean used;
+
+        Entry(String regex, boolean used) {
+            this.regex = regex;
+            this.used = used;
+        }
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private int loaded;
+
+    // Thread-safe: FilterGenerator looks patterns up from several worker threads at once.
+    String computeIfAbsent(String key, Supplier<String> generator) {
+        lookups.increment();
+        Entry entry = entries.computeIfAbsent(keyOf(key), k -> {
+            generated.increment();
+            return new Entry(generator.get(), true);
+        });
+        entry.used = true;
+        return entry.regex;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int loaded() {
+        return loaded;
+    }
+
+    long hits() {
+        return lookups.sum() - generated.sum();
+    }
+
+    long generated() {
+        return generated.sum();
+    }
+
+    // Drops what no lookup used since the last call, so a long-running watcher only keeps the current list's patterns.
+    int evictUnused() {
+        int before = entries.size();
+        entries.values().removeIf(entry -> !entry.used);
+        for (Entry entry : entries.values()) entry.used = false;
+        return before - entries.size();
+    }
+
+    // A missing file or one written by another generator version gives an empty cache; a damaged one is an error.
+    static RegexCache load(Path path) throws IOException {
+        RegexCache cache = new RegexCache();
+        if (!Files.exists(path)) return cache;
+        long size = Files.size(path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(generatorFingerprint())) {
+                return cache;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Key key = new Key(in.readLong(), in.readLong());
+                int length = in.readInt();
+                // No regex is longer than the file it came from; a damaged length must not allocate gigabytes.
+                if (length < 0 || length > size) throw new IOException("damaged regex cache " + path);
+                byte[] regex = new byte[length];
+                in.readFully(regex);
+                cache.entries.put(key, new Entry(new String(regex, StandardCharsets.UTF_8), false));
+            }
+        } catch (EOFException e) {
+            throw new IOException("truncated regex cache " + path, e);
+        }
+        cache.loaded = cache.entries.size();
+        return cache;
+    }
+
+    // Only writes when this session generated something the file does not have yet.
+    void save(Path path) throws IOException {
+        if (generated.sum() == 0 && Files.exists(path)) return;
+        boolean usedOnly = entries.size() > MAX_ENTRIES;
+        List<Map.Entry<Key, Entry>> kept = new ArrayList<>();
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            if (!usedOnly || e.getValue().used) kept.add(e);
+        }
+        // Sorted so the same cache always gives the same file.
+        kept.sort((a, b) -> a.getKey().high != b.getKey().high
+                ? Long.compare(a.getKey().high, b.getKey().high)
+                : Long.compare(a.getKey().low, b.getKey().low));
+        IncrementalSaver.writeBinaryAtomically(path, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(generatorFingerprint());
+            out.writeInt(kept.size());
+            for (Map.Entry<Key, Entry> e : kept) {
+                byte[] regex = e.getValue().regex.getBytes(StandardCharsets.UTF_8);
+                out.writeLong(e.getKey().high);
+                out.writeLong(e.getKey().low);
+                out.writeInt(regex.length);
+                out.write(regex);
+            }
+            out.flush();
+        });
+        generated.reset();
+    }
+
+    // FNV-1a and a golden-ratio multiply hash over the UTF-16 chars, each finished with the MurmurHash3 mixer.
+    private static Key keyOf(String key) {
+        long high = 0xcbf29ce484222325L;
+        long low = key.length();
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            high = (high ^ c) * 0x100000001b3L;
+            low = (low + c) * 0x9e3779b97f4a7c15L;
+        }
+        return new Key(mix(high), mix(low ^ high));
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    // Everything a pattern depends on that is not part of its key: the fixed fragments and the built-in table.
+    static String generatorFingerprint() {
+        String fragments = String.join("\n", FilterGenerator.SEP_TOKEN, FilterGenerator.NORMAL_PREFIX_REGEX,
+                FilterGenerator.NORMAL_SUFFIX_REGEX, FilterGenerator.STRONG_PREFIX_REGEX, FilterGenerator.STRONG_BODY_PREFIX,
+                FilterGenerator.STRONG_BODY_SUFFIX, FilterGenerator.COLOR_SEP_TOKEN, FilterGenerator.COLOR_NORMAL_SUFFIX_REGEX);
+        return Integer.toHexString(fragments.hashCode()) + "/" + Confusables.BUILT_IN.fingerprint();
+    }
+}
@@ -0,0 +1,242 @@
+//====================================================================================================================
+// Sparkkrye
+// RegexOptimizer
+// Rewrite passes over a FilterPattern, each one toggled on its own, applied between generation and output.
+// Note:
+// Every pass keeps the set of blocked messages identical; verify() checks that by running the optimized and the
+// unoptimized pattern over the same crafted and random messages (see RegexOptimizerCheck).
+// There is no pass merging repeated letters ("[s]+[s]+" -> "[s]{2,}"): the generator puts a separator after every
+// letter, and "[s]+SEP[s]+" cannot become "[s]{2,}" without refusing "s.s".
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+final class RegexOptimizer {
+
+    enum Pass {
+        // Removes duplicated class members (also case-folded ones, "jJ" -> "j") and escapes the ones brackets need.
+        CLASSES,
+        // Strong filters only: the trailing lazy SEP always matches empty, and one letter of the last run is enough.
+        TRAILING,
+        // "[x]+" -> "[x]++" when nothing that can follow the run accepts a character of x.
+        POSSESSIVE
+    }
+
+    static final Set<Pass> ALL = Collections.unmodifiableSet(EnumSet.allOf(Pass.class));
+
+    private static final String CLASS_ESCAPES = "\\^-[]&";
+    private static final String BOUNDARY_SAMPLES = " .,!?-_*$|§";
+    private static final int RANDOM_MESSAGES_PER_WORD = 300;
+    private static final String LONG_GAP = ". . §c§l. . ";
+
+    private RegexOptimizer() {
+    }
+
+    static FilterPattern optimize(FilterPattern pattern, Set<Pass> passes) {
+        List<FilterPattern.Node> nodes = new ArrayList<>(pattern.nodes);
+        if (passes.contains(Pass.CLASSES)) cleanClasses(nodes);
+        if (passes.contains(Pass.TRAILING)) dropTrailing(nodes);
+        if (passes.contains(Pass.POSSESSIVE)) makePossessive(nodes);
+        return new FilterPattern(nodes);
+    }
+
+    // Accepts "all", "none" or a comma separated list of pass names, case-insensitive.
+    static Set<Pass> parsePasses(String spec) {
+        if (spec.equalsIgnoreCase("all")) return EnumSet.allOf(Pass.class);
+        Set<Pass> passes = EnumSet.noneOf(Pass.class);
+        if (spec.equalsIgnoreCase("none")) return passes;
+        for (String name : spec.split(",")) {
+            passes.add(Pass.valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT)));
+        }
+        return passes;
+    }
+
+    // ---- Passes ----
+
+    private static void cleanClasses(List<FilterPattern.Node> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (!(nodes.get(i) instanceof FilterPattern.Letter)) continue;
+            FilterPattern.Letter letter = (FilterPattern.Letter) nodes.get(i);
+            StringBuilder group = new StringBuilder();
+            Set<Character> seen = new LinkedHashSet<>();
+            for (char c : letter.chars.toCharArray()) {
+                if (!seen.add(fold(c))) continue;
+                if (CLASS_ESCAPES.indexOf(c) >= 0) group.append('\\');
+                group.append(c);
+            }
+            nodes.set(i, letter.withGroup(group.toString()));
+        }
+    }
+
+    private static void dropTrailing(List<FilterPattern.Node> nodes) {
+        if (!isStrong(nodes)) return;
+        int last = nodes.size() - 1;
+        if (nodes.get(last) instanceof FilterPattern.Separator && ((FilterPattern.Separator) nodes.get(last)).lazy) {
+            nodes.remove(last);
+        }
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            FilterPattern.Node node = nodes.get(i);
+            if (node instanceof FilterPattern.Letter) {
+                FilterPattern.Letter letter = (FilterPattern.Letter) node;
+                if (letter.min >= 1) nodes.set(i, letter.with(1, 1, letter.quantifier));
+                return;
+            }
+            if (!isBodySuffix(node)) return;
+        }
+    }
+
+    // Possessive is only safe when giving a character back could never let the rest of the pattern match, i.e. the
+    // run's characters are disjoint from whatever can follow it (SEP, the next letter, the Normal end-of-word check).
+    private static void makePossessive(List<FilterPattern.Node> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (!(nodes.get(i) instanceof FilterPattern.Letter)) continue;
+            FilterPattern.Letter letter = (FilterPattern.Letter) nodes.get(i);
+            if (letter.min == letter.max || letter.sequences.length > 0) continue;
+            if (followIsDisjoint(letter.chars, nodes, i + 1)) {
+                nodes.set(i, letter.with(letter.min, letter.max, FilterPattern.Quantifier.POSSESSIVE));
+            }
+        }
+    }
+
+    private static boolean followIsDisjoint(String chars, List<FilterPattern.Node> nodes, int from) {
+        for (int j = from; j < nodes.size(); j++) {
+            FilterPattern.Node node = nodes.get(j);
+            if (node instanceof FilterPattern.Separator) {
+                for (char c : chars.toCharArray()) {
+                    if (c == '§' || FilterMatcher.isSeparator(c)) return false;
+                }
+            } else if (node instanceof FilterPattern.Letter) {
+                FilterPattern.Letter next = (FilterPattern.Letter) node;
+                for (char c : chars.toCharArray()) {
+                    if (FilterMatcher.groupAccepts(next.chars, c)) return false;
+                    for (String seq : next.sequences) {
+                        if (FilterMatcher.groupAccepts(seq.substring(0, 1), c)) return false;
+                    }
+                }
+                if (next.min > 0) return true;
+            } else if (isNormalSuffix(node)) {
+                for (char c : chars.toCharArray()) {
+                    if (FilterMatcher.isBoundary(c)) return false;
+                }
+                return true;
+            } else if (!isBodySuffix(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStrong(List<FilterPattern.Node> nodes) {
+        for (FilterPattern.Node node : nodes) {
+            if (node instanceof FilterPattern.Literal && ((FilterPattern.Literal) node).text.equals(FilterGenerator.STRONG_BODY_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNormalSuffix(FilterPattern.Node node) {
+        String text = ((FilterPattern.Literal) node).text;
+        return text.equals(FilterGenerator.NORMAL_SUFFIX_REGEX) || text.equals(FilterGenerator.COLOR_NORMAL_SUFFIX_REGEX);
+    }
+
+    private static boolean isBodySuffix(FilterPattern.Node node) {
+        return node instanceof FilterPattern.Literal && ((FilterPattern.Literal) node).text.equals(FilterGenerator.STRONG_BODY_SUFFIX);
+    }
+
+    // (?i) folds ASCII only, so 'J' and 'j' are the same member but 'Á' and 'á' are not.
+    private static char fold(char c) {
+        return c < 128 ? Character.toLowerCase(c) : c;
+    }
+
+    // ---- Differential check ----
+
+    // Returns one line per message where the optimized and the unoptimized pattern disagree; empty means equivalent.
+    static List<String> verify(Iterable<String> words, Set<Pass> passes, long seed) {
+        return verify(words, passes, Confusables.BUILT_IN, seed);
+    }
+
+    static List<String> verify(Iterable<String> words, Set<Pass> passes, Confusables confusables, long seed) {
+        return verify(words, passes, confusables, Separators.UNLIMITED, seed);
+    }
+
+    static List<String> verify(Iterable<String> words, Set<Pass> passes, Confusables confusables, Separators separators,
+                               long seed) {
+        List<String> mismatches = new ArrayList<>();
+        Random random = new Random(seed);
+        for (String line : words) {
+            boolean strong = line.startsWith("!");
+            String word = strong ? line.substring(1) : line;
+            if (word.isEmpty()) continue;
+            FilterPattern original = strong ? FilterPattern.strongFilter(word, true, confusables, separators)
+                    : FilterPattern.normal(word, true, confusables, separators);
+            Pattern before = Pattern.compile(original.render());
+            Pattern after = Pattern.compile(optimize(original, passes).render());
+            for (String message : messages(word, confusables, random)) {
+                boolean expected = before.matcher(message).find();
+                if (after.matcher(message).find() != expected) {
+                    mismatches.add(line + ": \"" + message + "\" " + (expected ? "no longer matches" : "now matches"));
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static List<String> messages(String word, Confusables confusables, Random random) {
+        List<String> messages = new ArrayList<>();
+        StringBuilder alphabet = new StringBuilder(BOUNDARY_SAMPLES).append("azAZ09");
+        for (char c : word.toCharArray()) {
+            String group = confusables.membersOf(c);
+            alphabet.append(group).append(group.toUpperCase(Locale.ROOT));
+            for (String seq : confusables.sequencesOf(c)) alphabet.append(seq);
+        }
+        messages.add(word);
+        messages.add(word.toUpperCase(Locale.ROOT));
+        messages.add("x" + word);
+        messages.add(word + "x");
+        messages.add(word + "§c");
+        messages.add(word + "§");
+        for (int i = 0; i < word.length(); i++) {
+            messages.add(word.substring(0, i + 1) + word.charAt(i) + word.substring(i + 1));
+            messages.add(word.substring(0, i) + ". " + word.substring(i));
+            messages.add(word.substring(0, i) + LONG_GAP + word.substring(i));
+            messages.add(word.substring(0, i) + word.substring(i + 1));
+        }
+        for (int n = 0; n < RANDOM_MESSAGES_PER_WORD; n++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(word.length() * 3 + 4);
+            for (int k = 0; k < length; k++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            messages.add(sb.toString());
+            messages.add(obfuscated(word, confusables, alphabet, random));
+        }
+        return messages;
+    }
+
+    // The word spelled with random variants, repeats and separators, sometimes with a stray character around it.
+    private static String obfuscated(String word, Confusables confusables, CharSequence alphabet, Random random) {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextInt(3) == 0) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        for (char c : word.toCharArray()) {
+            String group = confusables.membersOf(c);
+            String[] sequences = confusables.sequencesOf(c);
+            for (int r = 1 + random.nextInt(3); r > 0; r--) {
+                int pick = random.nextInt(group.length() + sequences.length);
+                if (pick < group.length()) {
+                    sb.append(group.charAt(pick));
+                } else {
+                    sb.append(sequences[pick - group.length()]);
+                }
+            }
+            if (random.nextInt(3) == 0) sb.append(BOUNDARY_SAMPLES.charAt(random.nextInt(BOUNDARY_SAMPLES.length())));
+        }
+        if (random.nextInt(3) == 0) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,68 @@
+//====================================================================================================================
+// Sparkkrye
+// RegexOptimizerCheck
+// Differential check for RegexOptimizer, run on its own (e.g. before a release), not as part of generating a list.
+// Usage:
+// java RegexOptimizerCheck [words.txt]
+// Note:
+// Each pass alone and all of them together are checked against the unoptimized pattern, with unbounded, bounded
+// and color-code separators, over the built-in words (ones whose letters overlap SEP or each other, phrases,
+// Strong and Normal) plus the words of the given file. Seeds are fixed, so a run is repeatable. Exits with 1 and
+// prints every message the two patterns disagree on.
+//======================================================================================================================
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+final class RegexOptimizerCheck {
+    private static final List<String> BUILT_IN_WORDS = List.of(
+            "sex", "!bitch", "!pene", "puto", "pollo", "listo", "libro", "shit", "!ss", "!sal", "limon", "caca",
+            "jajaja", "!ass", "mierda", "hijo de puta", "!la puta", "a", "!x");
+    private static final long SEED = 20_240_601L;
+
+    private RegexOptimizerCheck() {
+    }
+
+    public static void main(String[] args) {
+        Set<String> words = new LinkedHashSet<>(BUILT_IN_WORDS);
+        if (args.length > 0) {
+            try {
+                FilterGenerator.forEachWord(Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8), false,
+                        (clean, isStrong) -> words.add((isStrong ? "!" : "") + clean));
+            } catch (IOException e) {
+                System.err.println("Error reading " + args[0] + ": " + e.getMessage());
+                System.exit(2);
+            }
+        }
+
+        List<Set<RegexOptimizer.Pass>> passSets = new ArrayList<>();
+        for (RegexOptimizer.Pass pass : RegexOptimizer.Pass.values()) passSets.add(EnumSet.of(pass));
+        passSets.add(RegexOptimizer.ALL);
+        Separators[] separators = {
+                Separators.UNLIMITED,
+                new Separators(2, 4),
+                new Separators(Separators.UNBOUNDED, Separators.UNBOUNDED, true),
+                new Separators(2, 4, true)
+        };
+
+        int failed = 0;
+        for (Separators sep : separators) {
+            for (Set<RegexOptimizer.Pass> passes : passSets) {
+                List<String> mismatches = RegexOptimizer.verify(words, passes, Confusables.BUILT_IN, sep, SEED);
+                for (String m : mismatches) {
+                    System.out.println("MISMATCH " + passes + " sep=" + sep.fingerprint() + " " + m);
+                }
+                System.out.println((mismatches.isEmpty() ? "ok       " : "FAILED   ") + passes + " sep=" + sep.fingerprint()
+                        + ": " + words.size() + " words, " + mismatches.size() + " mismatches");
+                if (!mismatches.isEmpty()) failed++;
+            }
+        }
+        if (failed > 0) System.exit(1);
+    }
+}
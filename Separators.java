@@ -0,0 +1,70 @@
+//====================================================================================================================
+// Sparkkrye
+// Separators
+// How many separator tokens ('.', ' ', '§c', ...) a filter accepts between two letters and between two words.
+// Note:
+// A space inside a words.txt entry ("hijo de puta") is a word gap: the letters on both sides are joined by a
+// separator bounded by 'words' instead of 'letters', so a phrase is one filter. Bounded separators render as
+// '(?>...){0,N}' and keep every attempt from scanning far ahead through dot runs or gradient color codes.
+// With both limits unbounded every gap is SEP and the generated output is what it always was.
+// colorCodes swaps SEP_TOKEN for COLOR_SEP_TOKEN: a whole hex color ('§x§r§r§g§g§b§b', '&x&r&r&g&g&b&b') or an
+// '&' code is one token instead of seven or a letter the filter trips over, so a gradient word costs one step per
+// code and '&c' between letters no longer hides a word. An '&' whose code would eat a letter of the word can
+// still be read as plain punctuation.
+//======================================================================================================================
+final class Separators {
+    static final int UNBOUNDED = -1;
+    static final char WORD_GAP = ' ';
+    static final Separators UNLIMITED = new Separators(UNBOUNDED, UNBOUNDED);
+
+    final int letters;
+    final int words;
+    final boolean colorCodes;
+
+    Separators(int letters, int words) {
+        this(letters, words, false);
+    }
+
+    Separators(int letters, int words, boolean colorCodes) {
+        if (letters < UNBOUNDED || words < UNBOUNDED) {
+            throw new IllegalArgumentException("separator limits must be 0 or more (or unbounded)");
+        }
+        this.letters = letters;
+        this.words = words;
+        this.colorCodes = colorCodes;
+    }
+
+    boolean bounded() {
+        return letters != UNBOUNDED || words != UNBOUNDED;
+    }
+
+    int max(boolean wordGap) {
+        return wordGap ? words : letters;
+    }
+
+    String regex(boolean wordGap) {
+        return regex(max(wordGap), colorCodes);
+    }
+
+    static String regex(int max, boolean colorCodes) {
+        if (!colorCodes) {
+            return max == UNBOUNDED ? FilterGenerator.SEP : FilterGenerator.SEP_TOKEN + "{0," + max + "}";
+        }
+        return FilterGenerator.COLOR_SEP_TOKEN + (max == UNBOUNDED ? "*" : "{0," + max + "}");
+    }
+
+    // The Normal end-of-word check: with color codes an '&' code glued to the next word is not a boundary either.
+    String normalSuffix() {
+        return colorCodes ? FilterGenerator.COLOR_NORMAL_SUFFIX_REGEX : FilterGenerator.NORMAL_SUFFIX_REGEX;
+    }
+
+    // Part of describeOptions() and of the regex cache keys.
+    String fingerprint() {
+        String limits = bounded() ? limit(letters) + "/" + limit(words) : "off";
+        return colorCodes ? limits + "+colors" : limits;
+    }
+
+    private static String limit(int max) {
+        return max == UNBOUNDED ? "*" : Integer.toString(max);
+    }
+}
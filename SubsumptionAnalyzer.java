@@ -0,0 +1,165 @@
+//====================================================================================================================
+// Sparkkrye
+// SubsumptionAnalyzer
+// Finds filters that can never block a message the rest of the list would let through.
+// Note:
+// Words are compared by letter class (Confusables.representative), so "vaca" and "baca" are the same filter.
+// A Strong filter matches anywhere, so it covers every filter whose classes contain its own as a contiguous run:
+// "!puta" covers "puta", "putas" and "!reputa". Normal filters never cover others (their word boundaries differ).
+// Like FilterMatcher, this ignores the "Guardian" lookahead, which only differs across line breaks.
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+final class SubsumptionAnalyzer {
+
+    enum Reason {
+        DUPLICATE("duplicate of"),
+        EQUIVALENT("same letter classes as"),
+        STRONG_SUBSTRING("contained in");
+
+        final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+    }
+
+    static final class Redundancy {
+        final String entry;
+        final String keptEntry;
+        final Reason reason;
+
+        Redundancy(String entry, String keptEntry, Reason reason) {
+            this.entry = entry;
+            this.keptEntry = keptEntry;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return entry + ": " + reason.description + " " + keptEntry;
+        }
+    }
+
+    static final class Result {
+        final List<Redundancy> redundant;
+        private final Set<String> dropped;
+
+        Result(List<Redundancy> redundant, Set<String> dropped) {
+            this.redundant = redundant;
+            this.dropped = dropped;
+        }
+
+        // A fresh filter for one generation pass: drops covered words and every repeat of a kept one.
+        BiPredicate<String, Boolean> keeper() {
+            Set<String> seen = new HashSet<>();
+            return (clean, strong) -> {
+                String entry = entry(clean, strong);
+                return !dropped.contains(entry) && seen.add(entry);
+            };
+        }
+    }
+
+    private SubsumptionAnalyzer() {
+    }
+
+    static Result analyze(Iterable<String> lines, boolean genderVariants, Confusables confusables) {
+        return analyze(lines, genderVariants, confusables, null);
+    }
+
+    // With suffix rules every inflected form is an entry of its own, as the generator emits them.
+    static Result analyze(Iterable<String> lines, boolean genderVariants, Confusables confusables, SuffixRules suffixRules) {
+        List<String> entries = new ArrayList<>();
+        FilterGenerator.forEachWord(lines, genderVariants, (clean, strong) -> {
+            for (String form : suffixRules == null ? List.of(clean) : suffixRules.inflect(clean)) {
+                entries.add(entry(form, strong));
+            }
+        });
+
+        List<Redundancy> redundant = new ArrayList<>();
+        Set<String> dropped = new HashSet<>();
+        Set<String> seen = new HashSet<>();
+        Map<String, String> strongByKey = new HashMap<>();
+        Map<String, String> normalByKey = new HashMap<>();
+        int longestStrong = 0;
+
+        // Pass 1: duplicates and equivalent spellings; the first entry of each class sequence is kept.
+        List<String> candidates = new ArrayList<>();
+        for (String entry : entries) {
+            if (!seen.add(entry)) {
+                redundant.add(new Redundancy(entry, entry, Reason.DUPLICATE));
+                continue;
+            }
+            boolean strong = entry.startsWith("!");
+            String key = key(strong ? entry.substring(1) : entry, confusables);
+            String kept = (strong ? strongByKey : normalByKey).putIfAbsent(key, entry);
+            if (kept != null) {
+                redundant.add(new Redundancy(entry, kept, Reason.EQUIVALENT));
+                dropped.add(entry);
+                continue;
+            }
+            if (strong) longestStrong = Math.max(longestStrong, key.length());
+            candidates.add(entry);
+        }
+
+        // Pass 2: the shortest Strong key found inside a word covers it, and is never covered itself.
+        for (String entry : candidates) {
+            boolean strong = entry.startsWith("!");
+            String key = key(strong ? entry.substring(1) : entry, confusables);
+            String cover = shortestStrongInside(key, strong, strongByKey, longestStrong);
+            if (cover != null) {
+                redundant.add(new Redundancy(entry, cover, Reason.STRONG_SUBSTRING));
+                dropped.add(entry);
+            }
+        }
+        return new Result(redundant, dropped);
+    }
+
+    // True when one entry of a list ("word" or "!word", as analyze() lists them, with keys from keyOf) takes no part
+    // in the result: no other entry shares its letter classes, no Strong entry covers it and, for a Strong one, it
+    // covers no other entry. Adding or removing only such entries leaves the result as it was, so a caller that
+    // edits a long list a few lines at a time (the GUI preview) can keep its last result.
+    static boolean isIsolated(String entry, String key, List<String> entries, List<String> keys) {
+        boolean strong = entry.startsWith("!");
+        int same = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            String other = keys.get(i);
+            boolean otherStrong = entries.get(i).startsWith("!");
+            if (otherStrong == strong && other.equals(key) && ++same > 1) return false;
+            if (otherStrong && key.contains(other) && (!strong || other.length() < key.length())) return false;
+            if (strong && other.contains(key) && (!otherStrong || other.length() > key.length())) return false;
+        }
+        return true;
+    }
+
+    static String keyOf(String entry, Confusables confusables) {
+        return key(entry.startsWith("!") ? entry.substring(1) : entry, confusables);
+    }
+
+    private static String shortestStrongInside(String key, boolean strong, Map<String, String> strongByKey, int longest) {
+        for (int length = 1; length <= Math.min(longest, key.length()); length++) {
+            if (strong && length == key.length()) break;
+            for (int from = 0; from + length <= key.length(); from++) {
+                String cover = strongByKey.get(key.substring(from, from + length));
+                if (cover != null) return cover;
+            }
+        }
+        return null;
+    }
+
+    private static String key(String word, Confusables confusables) {
+        char[] key = new char[word.length()];
+        for (int i = 0; i < key.length; i++) key[i] = confusables.representative(word.charAt(i));
+        return new String(key);
+    }
+
+    private static String entry(String clean, boolean strong) {
+        return strong ? "!" + clean : clean;
+    }
+}
@@ -0,0 +1,129 @@
+//====================================================================================================================
+// Sparkkrye
+// SuffixRules
+// Inflection rules per language: which endings replace the ending of a word (puto -> puta, putos, putito, ...).
+// Format (suffixes.txt, UTF-8):
+//   [es]
+//   o = a os as ito ita itos itas      a word ending in "o" also gets these endings instead of the "o"
+//   * = s                              "*" applies when no other ending of the language matches
+// Note:
+// The generator folds all forms of a word into one pattern through CombinedFilterBuilder, so the stem is matched
+// once and the endings are an alternation at its end. The stem must keep at least MIN_STEM letters.
+//======================================================================================================================
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+final class SuffixRules {
+    static final String FILE = "suffixes.txt";
+    private static final int MIN_STEM = 2;
+    private static final String ANY = "*";
+
+    private static final List<String> BUILT_IN_LINES = List.of(
+        "[es]",
+        "o = a os as ito ita itos itas",
+        "a = as ita itas",
+        "e = es",
+        "[en]",
+        "* = s",
+        "y = ies"
+    );
+
+    private final String language;
+    private final String[] endings;
+    private final String[][] replacements;
+    private final String fingerprint;
+
+    private SuffixRules(String language, Map<String, List<String>> rules) {
+        this.language = language;
+        List<String> keys = new ArrayList<>(rules.keySet());
+        keys.sort((a, b) -> Integer.compare(length(b), length(a)));
+        endings = keys.toArray(new String[0]);
+        replacements = new String[endings.length][];
+        StringBuilder sb = new StringBuilder(language);
+        for (int i = 0; i < endings.length; i++) {
+            replacements[i] = rules.get(endings[i]).toArray(new String[0]);
+            sb.append(';').append(endings[i]).append('=').append(String.join(",", replacements[i]));
+        }
+        fingerprint = sb.toString();
+    }
+
+    static SuffixRules builtIn(String language) {
+        return parse(BUILT_IN_LINES, "built-in", language);
+    }
+
+    // suffixes.txt next to words.txt when it exists, otherwise the built-in rules.
+    static SuffixRules loadDefault(String language) throws IOException {
+        Path path = Path.of(FILE);
+        try {
+            if (!Files.exists(path)) return builtIn(language);
+            return parse(Files.readAllLines(path, StandardCharsets.UTF_8), path.toString(), language);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    static SuffixRules parse(List<String> lines, String name, String language) {
+        language = language.toLowerCase(Locale.ROOT);
+        Map<String, List<String>> rules = new LinkedHashMap<>();
+        String section = null;
+        boolean found = false;
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            if (line.startsWith("[") && line.endsWith("]")) {
+                section = line.substring(1, line.length() - 1).trim().toLowerCase(Locale.ROOT);
+                found |= section.equals(language);
+                continue;
+            }
+            int eq = line.indexOf('=');
+            if (section == null || eq < 0) {
+                throw new IllegalArgumentException(name + ":" + (n + 1) + ": expected '[language]' or '<ending> = <endings>'");
+            }
+            if (!section.equals(language)) continue;
+            String ending = line.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+            List<String> forms = rules.computeIfAbsent(ending, k -> new ArrayList<>());
+            for (String token : line.substring(eq + 1).trim().split("\\s+")) {
+                if (!token.isEmpty()) forms.add(token.toLowerCase(Locale.ROOT));
+            }
+        }
+        if (!found) throw new IllegalArgumentException(name + ": no [" + language + "] section");
+        return new SuffixRules(language, rules);
+    }
+
+    String language() {
+        return language;
+    }
+
+    // The word itself first, then every inflection, without repeats. Only the longest matching ending applies.
+    List<String> inflect(String word) {
+        Set<String> forms = new LinkedHashSet<>();
+        forms.add(word);
+        for (int i = 0; i < endings.length; i++) {
+            String ending = endings[i];
+            if (!ending.equals(ANY) && !word.endsWith(ending)) continue;
+            String stem = word.substring(0, word.length() - length(ending));
+            if (stem.length() < MIN_STEM) break;
+            for (String replacement : replacements[i]) forms.add(stem + replacement);
+            break;
+        }
+        return new ArrayList<>(forms);
+    }
+
+    // Part of describeOptions() and of the regex cache keys.
+    String fingerprint() {
+        return fingerprint;
+    }
+
+    private static int length(String ending) {
+        return ending.equals(ANY) ? 0 : ending.length();
+    }
+}
@@ -0,0 +1,137 @@
+//====================================================================================================================
+// Sparkkrye
+// WordListFile
+// Read-only, indexed view of a words.txt of any size: only the line start offsets live on the heap.
+// Note:
+// Lines are decoded on demand with positional reads instead of a long-lived memory mapping, so the file can be
+// replaced on save (a mapped file stays locked on Windows until the mapping is garbage collected).
+//======================================================================================================================
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+final class WordListFile implements Iterable<String>, Closeable {
+    private static final int SCAN_BUFFER = 1 << 16;
+
+    private final FileChannel channel;
+    private final long[] starts;
+    private final int lines;
+    private final long length;
+
+    private WordListFile(FileChannel channel, long[] starts, int lines, long length) {
+        this.channel = channel;
+        this.starts = starts;
+        this.lines = lines;
+        this.length = length;
+    }
+
+    static WordListFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            long[] starts = new long[1024];
+            int lines = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+            long position = 0;
+            boolean atLineStart = true;
+            while (position < length) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read < 0) break;
+                for (int i = 0; i < read; i++) {
+                    if (atLineStart) {
+                        if (lines == starts.length) starts = Arrays.copyOf(starts, lines * 2);
+                        starts[lines++] = position + i;
+                        atLineStart = false;
+                    }
+                    if (buffer.get(i) == '\n') atLineStart = true;
+                }
+                position += read;
+            }
+            return new WordListFile(channel, starts, lines, length);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int size() {
+        return lines;
+    }
+
+    // Without the line terminator ("\n" or "\r\n").
+    String get(int line) {
+        long start = starts[line];
+        long end = line + 1 < lines ? starts[line + 1] : length;
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        try {
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, start + bytes.position()) < 0) break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int n = bytes.position();
+        if (n > 0 && bytes.get(n - 1) == '\n') n--;
+        if (n > 0 && bytes.get(n - 1) == '\r') n--;
+        return new String(bytes.array(), 0, n, StandardCharsets.UTF_8);
+    }
+
+    // Sequential pass with its own read position, so a preview and a save can iterate at the same time.
+    @Override
+    public Iterator<String> iterator() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new InputStream() {
+            private long position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position >= length) return -1;
+                int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, length - position)), position);
+                if (n > 0) position += n;
+                return n;
+            }
+        }, StandardCharsets.UTF_8), SCAN_BUFFER);
+
+        return new Iterator<String>() {
+            private String next = readLine();
+
+            private String readLine() {
+                try {
+                    return reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) throw new NoSuchElementException();
+                String line = next;
+                next = readLine();
+                return line;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,118 @@
+//====================================================================================================================
+// Sparkkrye
+// WordListModel
+// List model for the large-list editor: rows point into a WordListFile until they are edited.
+// Note:
+// A row is an int: >= 0 is a line of the file, < 0 is an edited line kept in memory. Untouched lines are read
+// again from disk when the JList paints them, so memory grows with the number of edits, not the size of the list.
+//======================================================================================================================
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.swing.AbstractListModel;
+
+final class WordListModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    private final WordListFile file;
+    private int[] rows;
+    private int size;
+    private final List<String> edits = new ArrayList<>();
+    private boolean edited;
+
+    WordListModel(WordListFile file) {
+        this.file = file;
+        this.size = file.size();
+        this.rows = new int[Math.max(16, size)];
+        for (int i = 0; i < size; i++) rows[i] = i;
+    }
+
+    WordListFile file() {
+        return file;
+    }
+
+    boolean isEdited() {
+        return edited;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        int row = rows[index];
+        return row >= 0 ? file.get(row) : edits.get(-row - 1);
+    }
+
+    void set(int index, String text) {
+        int row = rows[index];
+        if (row < 0) {
+            edits.set(-row - 1, text);
+        } else {
+            edits.add(text);
+            rows[index] = -edits.size();
+        }
+        edited = true;
+        fireContentsChanged(this, index, index);
+    }
+
+    void insert(int index, String text) {
+        if (size == rows.length) rows = Arrays.copyOf(rows, size * 2);
+        System.arraycopy(rows, index, rows, index + 1, size - index);
+        edits.add(text);
+        rows[index] = -edits.size();
+        size++;
+        edited = true;
+        fireIntervalAdded(this, index, index);
+    }
+
+    void remove(int index) {
+        System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+        size--;
+        edited = true;
+        fireIntervalRemoved(this, index, index);
+    }
+
+    // Streams the file directly while nothing was edited; otherwise walks the rows.
+    Iterable<String> lines() {
+        if (!edited) return file;
+        return () -> new Iterator<String>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) throw new NoSuchElementException();
+                return getElementAt(next++);
+            }
+        };
+    }
+
+    // The first rows only, for the live preview.
+    Iterable<String> head(int count) {
+        return () -> new Iterator<String>() {
+            private final Iterator<String> all = lines().iterator();
+            private int returned;
+
+            @Override
+            public boolean hasNext() {
+                return returned < count && all.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                returned++;
+                return all.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,171 @@
+//====================================================================================================================
+// Sparkkrye
+// WordListWatcher
+// Daemon behind FilterGeneratorCLI --watch: regenerates FilteredWords.yml whenever words.txt changes on disk.
+// Note:
+// The directory is watched, not the file, so editors and web panels that save through a rename are seen too.
+// A burst of writes is one change: after the first event the watcher waits until the file has been quiet for
+// DEBOUNCE_MILLIS (at most MAX_DELAY_MILLIS). Unchanged lines are RegexCache hits, so only edited lines generate
+// a pattern; the output goes through IncrementalSaver (atomic move, skipped when nothing changed). After every
+// build the cache is trimmed to the patterns that build used, so memory follows the list and not the uptime.
+// With a FilterSafetyAnalyzer (--analyze) every build passes the same backtracking check as a one-off save: an
+// edit that produces an unsafe filter is refused and the previous output stays in place.
+// Headless: nothing here may touch java.awt or javax.swing.
+//======================================================================================================================
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+final class WordListWatcher implements Closeable {
+    static final long DEBOUNCE_MILLIS = 250;
+    static final long MAX_DELAY_MILLIS = 2_000;
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final FilterGenerator generator;
+    private final RegexCache cache;
+    private final Path input;
+    private final Path output;
+    private final IncrementalSaver saver;
+    private final boolean writePreScreen;
+    private final FilterSafetyAnalyzer safety;
+    private final PrintStream log;
+    private final WatchService watchService;
+
+    // safety may be null: every build is saved.
+    WordListWatcher(FilterGenerator generator, RegexCache cache, Path input, Path output, boolean writePreScreen,
+                    FilterSafetyAnalyzer safety, PrintStream log) throws IOException {
+        this.generator = generator.setRegexCache(cache);
+        this.cache = cache;
+        this.input = input.toAbsolutePath();
+        this.output = output;
+        this.saver = new IncrementalSaver(output);
+        this.writePreScreen = writePreScreen;
+        this.safety = safety;
+        this.log = log;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.input.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.OVERFLOW);
+    }
+
+    // Blocks until close() or until the watched directory disappears. Builds once at start, since words.txt may
+    // have changed while nothing was watching.
+    void run() {
+        regenerate(System.nanoTime(), 0);
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                long seen = System.nanoTime();
+                int events = drain(key);
+                if (!key.reset()) {
+                    log.println(stamp() + input.getParent() + " is no longer accessible; stopped watching");
+                    return;
+                }
+                if (events == 0) continue;
+                // Debounce: keep collecting until the file has been quiet for a moment.
+                long deadline = seen + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MILLIS);
+                while (true) {
+                    long wait = Math.min(DEBOUNCE_MILLIS, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+                    if (wait <= 0) break;
+                    WatchKey more = watchService.poll(wait, TimeUnit.MILLISECONDS);
+                    if (more == null) break;
+                    events += drain(more);
+                    more.reset();
+                }
+                regenerate(seen, events);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // close() was called.
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    // Events for words.txt only; the output and its temp files live in the same directory.
+    private int drain(WatchKey key) {
+        int events = 0;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || input.getFileName().equals(event.context())) {
+                events++;
+            }
+        }
+        return events;
+    }
+
+    private void regenerate(long seen, int events) {
+        long generatedBefore = cache.generated();
+        boolean[] built = {false};
+        int[] filters = {0};
+        int[] unsafe = {0};
+        List<FilterGenerator.GeneratedFilter> generated = new ArrayList<>();
+        PreScreen.Builder preScreen = new PreScreen.Builder(generator.getConfusables());
+        try (WordListFile lines = WordListFile.open(input)) {
+            IncrementalSaver.Report report = saver.save(IncrementalSaver.digest(lines, generator.describeOptions()),
+                    FilterGenerator.YAML_HEADER, sink -> {
+                        built[0] = true;
+                        generator.generate(lines, sink, filter -> {
+                            filters[0]++;
+                            if (safety != null) generated.add(filter);
+                            if (writePreScreen) preScreen.add(filter);
+                        });
+                    }, () -> safety == null || (unsafe[0] = countUnsafe(generated)) == 0);
+            long regenerated = cache.generated() - generatedBefore;
+            if (built[0]) cache.evictUnused();
+            String change = events == 0 ? "start" : input.getFileName() + " changed (" + events + (events == 1 ? " event)" : " events)");
+            switch (report.status) {
+                case SKIPPED:
+                case UNCHANGED:
+                    log.println(stamp() + change + ": " + output + " already up to date");
+                    break;
+                case EMPTY:
+                    log.println(stamp() + change + ": no words found, " + output + " left as is");
+                    break;
+                case REFUSED:
+                    log.println(stamp() + change + ": " + unsafe[0] + " filter(s) exceed " + safety.maxSteps()
+                            + " backtracking steps, " + output + " left as is");
+                    break;
+                default:
+                    if (writePreScreen) preScreen.build().write(FilterGeneratorCLI.sibling(output.toString(), PreScreen.EXTENSION));
+                    log.println(String.format(Locale.ROOT,
+                            "%s%s: saved %d filters to %s (+%d -%d, %d patterns generated) %.1f ms after the change",
+                            stamp(), change, filters[0], output, report.added, report.removed, regenerated,
+                            (System.nanoTime() - seen) / 1e6));
+            }
+        } catch (IOException | RuntimeException e) {
+            // A half-renamed or locked file: the next event tries again.
+            log.println(stamp() + "Error regenerating " + output + " from " + input + ": " + e);
+        }
+    }
+
+    private int countUnsafe(List<FilterGenerator.GeneratedFilter> filters) {
+        int unsafe = 0;
+        for (FilterSafetyAnalyzer.Report r : safety.analyzeAll(filters)) {
+            if (!r.exceeded) continue;
+            log.println(stamp() + "UNSAFE " + r.filter.title + ": > " + safety.maxSteps() + " steps");
+            unsafe++;
+        }
+        safety.retainOnly(filters);
+        return unsafe;
+    }
+
+    private static String stamp() {
+        return "[" + LocalTime.now().format(CLOCK) + "] ";
+    }
+}